@@ -0,0 +1,127 @@
+package com.compiler.lexer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
+
+/**
+ * Splits an alphabet into equivalence classes of characters that no automaton transition can tell
+ * apart, so that determinization and transition tables work per class instead of per character.
+ * Class ids are numbered from 0 in order of the first alphabet character of each class.
+ */
+final class AlphabetPartition {
+    private AlphabetPartition() {}
+
+    /**
+     * Coarsest partition induced by the transition labels of an NFA: two characters are in the same
+     * class when every state sends them to the same set of states.
+     * @param nfa the NFA (epsilon transitions are ignored)
+     * @param alphabet the alphabet, in column order
+     * @return alphabet index -> class id
+     */
+    static int[] ofNfa(NFA nfa, List<Character> alphabet) {
+        Map<Character, Integer> index = new HashMap<>();
+        for (int a = 0; a < alphabet.size(); a++) index.put(alphabet.get(a), a);
+        int[] cls = new int[alphabet.size()];
+        int nextClass = 1;
+
+        Set<State> seen = new HashSet<>();
+        Deque<State> stack = new ArrayDeque<>();
+        seen.add(nfa.getStartState());
+        stack.push(nfa.getStartState());
+        while (!stack.isEmpty()) {
+            State s = stack.pop();
+            // The labels of the edges from s to one target form one set that refines the partition
+            Map<State, List<Integer>> byTarget = new LinkedHashMap<>();
+            for (Transition t : s.transitions) {
+                if (seen.add(t.toState)) stack.push(t.toState);
+                if (t.symbol == null) continue;
+                Integer a = index.get(t.symbol);
+                if (a != null) byTarget.computeIfAbsent(t.toState, k -> new ArrayList<>()).add(a);
+            }
+            for (List<Integer> label : byTarget.values()) {
+                Map<Integer, Integer> split = new HashMap<>();
+                for (int a : label) {
+                    Integer moved = split.get(cls[a]);
+                    if (moved == null) {
+                        moved = nextClass++;
+                        split.put(cls[a], moved);
+                    }
+                    cls[a] = moved;
+                }
+            }
+        }
+        return renumber(cls);
+    }
+
+    /**
+     * Coarsest partition of the columns of a per-character table: characters whose columns are
+     * equal in every row share a class.
+     * @param rows [state][alphabet index] -> next state or -1
+     * @param alphabetSize number of columns
+     * @return alphabet index -> class id
+     */
+    static int[] ofColumns(int[][] rows, int alphabetSize) {
+        Map<List<Integer>, Integer> classes = new HashMap<>();
+        int[] cls = new int[alphabetSize];
+        for (int a = 0; a < alphabetSize; a++) {
+            Integer[] column = new Integer[rows.length];
+            for (int s = 0; s < rows.length; s++) column[s] = rows[s][a];
+            List<Integer> key = Arrays.asList(column);
+            Integer id = classes.get(key);
+            if (id == null) {
+                id = classes.size();
+                classes.put(key, id);
+            }
+            cls[a] = id;
+        }
+        return cls;
+    }
+
+    /**
+     * Returns the number of classes of a partition.
+     */
+    static int count(int[] cls) {
+        int max = -1;
+        for (int c : cls) max = Math.max(max, c);
+        return max + 1;
+    }
+
+    /**
+     * Returns, per class, the alphabet index of its first character.
+     */
+    static int[] representatives(int[] cls) {
+        int[] rep = new int[count(cls)];
+        Arrays.fill(rep, -1);
+        for (int a = 0; a < cls.length; a++) if (rep[cls[a]] == -1) rep[cls[a]] = a;
+        return rep;
+    }
+
+    /**
+     * Renumbers class ids densely, in order of first occurrence.
+     */
+    private static int[] renumber(int[] cls) {
+        Map<Integer, Integer> ids = new HashMap<>();
+        int[] result = new int[cls.length];
+        for (int a = 0; a < cls.length; a++) {
+            Integer id = ids.get(cls[a]);
+            if (id == null) {
+                id = ids.size();
+                ids.put(cls[a], id);
+            }
+            result[a] = id;
+        }
+        return result;
+    }
+}
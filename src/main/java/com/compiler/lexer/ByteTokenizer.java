@@ -0,0 +1,227 @@
+package com.compiler.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tokenizer that runs a byte-level LexerDefinition (see LexerBuilder.buildByteLexerDefinitionFromFile)
+ * directly over UTF-8 encoded input, without decoding it into a String first.
+ * Same maximal-munch semantics as Tokenizer, with skip rules and keywords; token offsets are byte
+ * offsets relative to the start of the tokenized region. Keywords are looked up over the matched bytes,
+ * so a keyword token reuses its canonical string, and only the lexemes of other tokens are decoded.
+ * Byte-level definitions have no value decoders or capture groups (LexerBuilder rejects those rule
+ * options), and there is no symbol interning or lazy fallback engine.
+ */
+public class ByteTokenizer {
+    private final LexerDefinition def;
+    private final KeywordTable[] keywordTable; // state -> keywords of the accepted type keyed by their UTF-8 bytes, or null
+    private final String[][] keywordText; // state -> slot of keywordTable -> the keyword as a String, or null
+    private boolean coalesceUnknown = false;
+
+    /**
+     * @param def table whose alphabet consists of byte values (characters 0..255)
+     * @throws IllegalArgumentException if the alphabet contains a character above 255
+     */
+    public ByteTokenizer(LexerDefinition def) {
+        for (char c : def.alphabet) {
+            if (c > 0xFF) throw new IllegalArgumentException("Not a byte-level lexer definition: alphabet contains '" + c + "'");
+        }
+        this.def = def;
+        this.keywordTable = new KeywordTable[def.keywordTable.length];
+        this.keywordText = new String[def.keywordTable.length][];
+        Map<KeywordTable, Integer> converted = new IdentityHashMap<>(); // table -> first state that has it
+        for (int s = 0; s < keywordTable.length; s++) {
+            KeywordTable chars = def.keywordTable[s];
+            if (chars == null) continue;
+            Integer first = converted.putIfAbsent(chars, s);
+            if (first != null) {
+                keywordTable[s] = keywordTable[first];
+                keywordText[s] = keywordText[first];
+                continue;
+            }
+            // Keys are the UTF-8 bytes of each keyword, one char per byte, as the lookup reads the input
+            Map<String, String> byBytes = new LinkedHashMap<>();
+            for (Map.Entry<String, String> e : chars.entries().entrySet()) byBytes.put(bytesAsChars(e.getKey()), e.getValue());
+            KeywordTable bytes = new KeywordTable(byBytes);
+            int[] slots = new int[byBytes.size()];
+            int size = 0;
+            int k = 0;
+            for (String key : byBytes.keySet()) {
+                slots[k] = bytes.find(key, 0, key.length());
+                size = Math.max(size, slots[k++] + 1);
+            }
+            String[] text = new String[size];
+            k = 0;
+            for (String keyword : chars.entries().keySet()) text[slots[k++]] = keyword;
+            keywordTable[s] = bytes;
+            keywordText[s] = text;
+        }
+    }
+
+    private static String bytesAsChars(String s) {
+        return new String(s.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Enables or disables coalescing of unrecognized input into one UNKNOWN token per run
+     * (disabled by default), as Tokenizer.setCoalesceUnknown.
+     */
+    public void setCoalesceUnknown(boolean coalesceUnknown) {
+        this.coalesceUnknown = coalesceUnknown;
+    }
+
+    /**
+     * Tokenize a whole byte array.
+     */
+    public List<Token> tokenize(byte[] input) {
+        return tokenize(ByteBuffer.wrap(input));
+    }
+
+    /**
+     * Tokenize input[offset, offset + length); token offsets are relative to offset.
+     */
+    public List<Token> tokenize(byte[] input, int offset, int length) {
+        return tokenize(ByteBuffer.wrap(input, offset, length));
+    }
+
+    /**
+     * Tokenize the remaining bytes of a buffer (position to limit) without moving its position;
+     * token offsets are relative to the position. Works on heap and direct buffers.
+     * Unknown input is reported per UTF-8 sequence, so UNKNOWN lexemes are whole characters.
+     */
+    public List<Token> tokenize(ByteBuffer input) {
+        List<Token> out = new ArrayList<>();
+        CharSequence bytes = new ByteChars(input);
+        int base = input.position();
+        int n = input.limit();
+        int pos = base;
+        int unknownStart = -1;
+        while (pos < n) {
+            int state = def.startState;
+            int lastAcceptState = -1;
+            int lastAcceptPos = -1;
+            int j = pos;
+            while (j < n) {
+                int a = def.alphabetIndex((char) (input.get(j) & 0xFF));
+                if (a == -1) break;
+                state = def.transitions[state][a];
+                if (state == -1 || !def.canReachAccept[state]) break;
+                if (def.isFinal[state]) {
+                    lastAcceptState = state;
+                    lastAcceptPos = j + 1;
+                }
+                j++;
+                if (def.isTerminal[state]) break;
+                if (def.hasSelfLoop(state)) {
+                    int k = skipSelfLoop(input, j, n, state);
+                    if (k > j && def.isFinal[state]) lastAcceptPos = k;
+                    j = k;
+                }
+            }
+
+            if (lastAcceptState == -1) {
+                int end = Math.min(n, pos + sequenceLength(input.get(pos)));
+                if (coalesceUnknown) {
+                    if (unknownStart == -1) unknownStart = pos;
+                    pos = end;
+                    while (pos < n && !def.canStartToken((char) (input.get(pos) & 0xFF))) pos++;
+                } else {
+                    out.add(new Token("UNKNOWN", decode(input, pos, end), pos - base, end - base));
+                    pos = end;
+                }
+                continue;
+            }
+
+            if (unknownStart != -1) {
+                out.add(new Token("UNKNOWN", decode(input, unknownStart, pos), unknownStart - base, pos - base));
+                unknownStart = -1;
+            }
+            if (!def.isSkip[lastAcceptState]) {
+                KeywordTable keywords = keywordTable[lastAcceptState];
+                int slot = keywords == null ? -1 : keywords.find(bytes, pos, lastAcceptPos);
+                if (slot != -1) {
+                    out.add(new Token(keywords.type(slot), keywordText[lastAcceptState][slot], pos - base, lastAcceptPos - base));
+                } else {
+                    out.add(new Token(def.tokenTypeNames[lastAcceptState], decode(input, pos, lastAcceptPos), pos - base, lastAcceptPos - base));
+                }
+            }
+            pos = lastAcceptPos;
+        }
+        if (unknownStart != -1) {
+            out.add(new Token("UNKNOWN", decode(input, unknownStart, n), unknownStart - base, n - base));
+        }
+        return out;
+    }
+
+    /**
+     * Returns the first position at or after j whose byte leaves the given state (ASCII self-loop mask).
+     */
+    private int skipSelfLoop(ByteBuffer input, int j, int n, int state) {
+        long low = def.selfLoopLow[state];
+        long high = def.selfLoopHigh[state];
+        while (j < n) {
+            int b = input.get(j);
+            if (b < 0) break; // non-ASCII byte
+            if (b < 64) {
+                if ((low & (1L << b)) == 0) break;
+            } else if ((high & (1L << (b - 64))) == 0) {
+                break;
+            }
+            j++;
+        }
+        return j;
+    }
+
+    /**
+     * Length of the UTF-8 sequence introduced by a lead byte (1 for invalid lead bytes).
+     */
+    private static int sequenceLength(byte lead) {
+        int b = lead & 0xFF;
+        if (b >= 0xF0 && b <= 0xF7) return 4;
+        if (b >= 0xE0) return b <= 0xEF ? 3 : 1;
+        if (b >= 0xC0) return 2;
+        return 1;
+    }
+
+    /**
+     * The bytes of a buffer as chars 0..255, indexed by absolute buffer position, for keyword lookups.
+     */
+    private static final class ByteChars implements CharSequence {
+        private final ByteBuffer input;
+
+        ByteChars(ByteBuffer input) {
+            this.input = input;
+        }
+
+        @Override
+        public int length() {
+            return input.limit();
+        }
+
+        @Override
+        public char charAt(int i) {
+            return (char) (input.get(i) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder sb = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) sb.append(charAt(i));
+            return sb.toString();
+        }
+    }
+
+    private static String decode(ByteBuffer input, int start, int end) {
+        if (input.hasArray()) {
+            return new String(input.array(), input.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[end - start];
+        input.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
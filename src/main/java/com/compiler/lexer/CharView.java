@@ -0,0 +1,62 @@
+package com.compiler.lexer;
+
+/**
+ * The characters being tokenized: a region of a char[], read directly without the bounds and
+ * position arithmetic of a CharBuffer, or any other CharSequence. Indices are relative to the
+ * start of the region. Scanning code takes a CharView rather than a CharSequence so that its
+ * reads stay monomorphic whatever the caller passed in.
+ */
+final class CharView implements CharSequence {
+    private final char[] array; // when non-null, characters are read from array[offset + i]
+    private final int offset;
+    private final CharSequence seq; // read when array is null
+    private final int length;
+
+    private CharView(char[] array, int offset, CharSequence seq, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.seq = seq;
+        this.length = length;
+    }
+
+    /**
+     * Returns a view of s (s itself if it is already a CharView).
+     */
+    static CharView of(CharSequence s) {
+        return s instanceof CharView view ? view : new CharView(null, 0, s, s.length());
+    }
+
+    /**
+     * Returns a view of array[offset, offset + length); the caller checks the bounds.
+     */
+    static CharView of(char[] array, int offset, int length) {
+        return new CharView(array, offset, null, length);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int i) {
+        return array != null ? array[offset + i] : seq.charAt(i);
+    }
+
+    /**
+     * Returns the characters [start, end) as a String.
+     */
+    String text(int start, int end) {
+        return array != null ? new String(array, offset + start, end - start) : seq.subSequence(start, end).toString();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text(0, length);
+    }
+}
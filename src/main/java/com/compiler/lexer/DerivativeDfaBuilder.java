@@ -0,0 +1,119 @@
+package com.compiler.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.compiler.lexer.regex.RegexNode;
+import com.compiler.lexer.regex.RegexNodeFactory;
+import com.compiler.lexer.regex.RegexParser;
+
+/**
+ * DerivativeDfaBuilder
+ * --------------------
+ * Builds a lexer DFA directly from the token regexes using Brzozowski derivatives, skipping the
+ * Thompson NFA and all epsilon-closure work.
+ *
+ * Each DFA state is a vector holding one canonical regex per rule: what is left to match of that
+ * rule after the input read so far. Reading a character replaces every component by its derivative.
+ * Because regexes are hash-consed in simplified form (RegexNodeFactory), equal vectors are found
+ * by a hash lookup and the number of states stays finite and usually close to minimal.
+ *
+ * Per state, the alphabet is partitioned by membership in the head character classes of the vector,
+ * so derivatives are computed once per class rather than once per character.
+ * A state accepts if some component is nullable; the rule with the best priority wins.
+ */
+public class DerivativeDfaBuilder {
+    /**
+     * Default constructor for DerivativeDfaBuilder.
+     */
+    public DerivativeDfaBuilder() {}
+
+    /**
+     * Builds the transition table for the given rules.
+     * @param rules token rules (priorities as assigned by LexerBuilder.readRulesFromFile)
+     * @param alphabet set of characters that form the input alphabet
+     * @return LexerDefinition with one column per character class
+     */
+    public static LexerDefinition build(List<TokenRule> rules, Set<Character> alphabet) {
+        RegexNodeFactory factory = new RegexNodeFactory();
+        RegexParser parser = new RegexParser(factory);
+        List<RegexNode> start = new ArrayList<>();
+        for (TokenRule rule : rules) start.add(parser.parseToAst(rule.regex, rule.ignoreCase));
+
+        List<Character> alphabetList = new ArrayList<>(alphabet);
+        int alphaSize = alphabetList.size();
+        Map<List<RegexNode>, Integer> index = new HashMap<>();
+        List<List<RegexNode>> states = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>();
+        index.put(start, 0);
+        states.add(start);
+
+        for (int s = 0; s < states.size(); s++) {
+            List<RegexNode> vector = states.get(s);
+            int[] row = new int[alphaSize];
+            Arrays.fill(row, -1);
+
+            // Partition the alphabet by membership in the head classes
+            Set<RegexNode> heads = new LinkedHashSet<>();
+            for (RegexNode node : vector) node.collectHeads(heads);
+            List<char[]> headChars = new ArrayList<>();
+            for (RegexNode head : heads) headChars.add(head.getChars());
+            Map<BitSet, List<Integer>> classes = new LinkedHashMap<>();
+            for (int a = 0; a < alphaSize; a++) {
+                char c = alphabetList.get(a);
+                BitSet signature = new BitSet();
+                for (int h = 0; h < headChars.size(); h++) {
+                    if (Arrays.binarySearch(headChars.get(h), c) >= 0) signature.set(h);
+                }
+                if (signature.isEmpty()) continue; // every derivative is empty: no transition
+                classes.computeIfAbsent(signature, k -> new ArrayList<>()).add(a);
+            }
+
+            for (List<Integer> cls : classes.values()) {
+                char representative = alphabetList.get(cls.get(0));
+                List<RegexNode> next = new ArrayList<>(vector.size());
+                boolean dead = true;
+                for (RegexNode node : vector) {
+                    RegexNode d = factory.derivative(node, representative);
+                    if (d.kind != RegexNode.Kind.VOID) dead = false;
+                    next.add(d);
+                }
+                if (dead) continue;
+                Integer target = index.get(next);
+                if (target == null) {
+                    target = states.size();
+                    index.put(next, target);
+                    states.add(next);
+                }
+                for (int a : cls) row[a] = target;
+            }
+            rows.add(row);
+        }
+
+        // Accepting states: a nullable component means its rule matches here
+        int stateCount = states.size();
+        boolean[] isFinal = new boolean[stateCount];
+        String[] tokenTypeNames = new String[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            int bestPriority = Integer.MAX_VALUE;
+            List<RegexNode> vector = states.get(s);
+            for (int r = 0; r < vector.size(); r++) {
+                if (!vector.get(r).nullable) continue;
+                isFinal[s] = true;
+                TokenRule rule = rules.get(r);
+                if (rule.priority <= bestPriority) {
+                    bestPriority = rule.priority;
+                    tokenTypeNames[s] = rule.tokenTypeName;
+                }
+            }
+        }
+        return LexerBuilder.withCharacterClasses(alphabetList, 0, rows.toArray(new int[0][]), isFinal, tokenTypeNames, rules);
+    }
+}
@@ -0,0 +1,41 @@
+package com.compiler.lexer;
+
+/**
+ * Limits on the work NfaToDfaConverter may do before giving up on a subset construction.
+ * Memory is an estimate of what the DFA under construction holds: the NFA state sets of its
+ * states and their transition maps.
+ */
+public class DfaBudget {
+    /**
+     * No limit, the behavior of NfaToDfaConverter.convertNfaToDfa(nfa, alphabet).
+     */
+    public static final DfaBudget UNLIMITED = new DfaBudget(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+    /**
+     * Default budget of the hybrid lexer builder: 10,000 states or about 64 MB.
+     */
+    public static final DfaBudget DEFAULT = new DfaBudget(10_000, 64L << 20);
+
+    // Rough per-entry costs on a 64-bit JVM, used by the memory estimate
+    static final long STATE_BYTES = 96; // DfaState with its empty set and map
+    static final long NFA_STATE_REF_BYTES = 40; // one HashSet entry
+    static final long TRANSITION_BYTES = 48; // one HashMap entry with a boxed key
+
+    public final int maxStates;
+    public final long maxBytes;
+
+    /**
+     * @param maxStates maximum number of DFA states
+     * @param maxBytes maximum estimated memory of the DFA under construction
+     */
+    public DfaBudget(int maxStates, long maxBytes) {
+        if (maxStates < 1 || maxBytes < 1) throw new IllegalArgumentException("DFA budget must be positive");
+        this.maxStates = maxStates;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return maxStates + " states / " + maxBytes + " bytes";
+    }
+}
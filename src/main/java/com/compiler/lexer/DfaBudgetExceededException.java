@@ -0,0 +1,17 @@
+package com.compiler.lexer;
+
+/**
+ * Thrown by NfaToDfaConverter when a subset construction exceeds its DfaBudget.
+ */
+public class DfaBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public final int states; // DFA states built when the budget ran out
+    public final long estimatedBytes; // estimated memory at that point
+
+    public DfaBudgetExceededException(DfaBudget budget, int states, long estimatedBytes) {
+        super("DFA budget of " + budget + " exceeded: " + states + " states, ~" + estimatedBytes + " bytes");
+        this.states = states;
+        this.estimatedBytes = estimatedBytes;
+    }
+}
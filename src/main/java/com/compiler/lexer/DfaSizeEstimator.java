@@ -0,0 +1,79 @@
+package com.compiler.lexer;
+
+import java.util.BitSet;
+
+import com.compiler.lexer.regex.RegexNode;
+
+/**
+ * DfaSizeEstimator
+ * ----------------
+ * Predicts, without determinizing, whether a rule's DFA may blow up.
+ *
+ * The classic blow-up is a loop followed by characters the loop can also consume, as in
+ * (a|b)*a(a|b){20}: after reading a character, the DFA cannot tell whether it was still part of the
+ * loop or the first of the following positions, so it must remember every combination of active
+ * positions, roughly 2^k states for k such positions. The estimate walks the AST left to right,
+ * remembers the characters of the loops seen so far, and doubles for every later character class
+ * (outside a loop) that overlaps them. The result is scaled by the AST size for the linear part.
+ *
+ * The estimate is a coarse upper bound meant for warnings and engine selection, not an exact count.
+ */
+public class DfaSizeEstimator {
+    /**
+     * Value returned when the estimate exceeds 2^40 states.
+     */
+    public static final long SATURATED = 1L << 40;
+
+    /**
+     * Default constructor for DfaSizeEstimator.
+     */
+    public DfaSizeEstimator() {}
+
+    /**
+     * Estimates the number of DFA states of a single rule.
+     *
+     * @param ast The rule's AST.
+     * @return Predicted state count, at most SATURATED.
+     */
+    public static long estimateStates(RegexNode ast) {
+        Walk walk = new Walk();
+        walk.visit(ast, false);
+        long states = ast.size();
+        for (int i = 0; i < walk.overlaps && states < SATURATED; i++) states *= 2;
+        return Math.min(states, SATURATED);
+    }
+
+    private static final class Walk {
+        final BitSet loopChars = new BitSet();
+        int overlaps = 0;
+
+        void visit(RegexNode node, boolean inLoop) {
+            switch (node.kind) {
+                case CHARS:
+                    if (!inLoop) {
+                        for (char c : node.getChars()) {
+                            if (loopChars.get(c)) {
+                                overlaps++;
+                                break;
+                            }
+                        }
+                    }
+                    break;
+                case STAR:
+                case PLUS:
+                    visit(node.getChildren().get(0), true);
+                    addChars(node.getChildren().get(0));
+                    break;
+                default:
+                    for (RegexNode child : node.getChildren()) visit(child, inLoop);
+            }
+        }
+
+        void addChars(RegexNode node) {
+            if (node.kind == RegexNode.Kind.CHARS) {
+                for (char c : node.getChars()) loopChars.set(c);
+            }
+            for (RegexNode child : node.getChildren()) addChars(child);
+        }
+    }
+}
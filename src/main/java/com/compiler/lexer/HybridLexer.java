@@ -0,0 +1,55 @@
+package com.compiler.lexer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lexer split across two engines: a table DFA (LexerDefinition) for the rules that determinize
+ * well, and a LazyDfa for the rules whose full DFA would be too large. The Tokenizer runs both at
+ * each position and keeps the longest match; on equal length the rule with the better priority wins,
+ * exactly as if all rules had been determinized together.
+ *
+ * Built by LexerBuilder.buildHybridLexerFromFile, which also reports why each rule was routed to
+ * the lazy engine.
+ */
+public class HybridLexer {
+    /**
+     * Table for the well-behaved rules; its skip types and keyword tables cover every rule.
+     */
+    public final LexerDefinition definition;
+    final LazyDfa fallback; // null when every rule is in the table
+    private final List<TokenRule> fallbackRules;
+    private final List<String> warnings;
+    private final Map<String, Integer> tablePriorities = new HashMap<>(); // token type -> best priority in the table
+
+    public HybridLexer(LexerDefinition definition, LazyDfa fallback, List<TokenRule> tableRules, List<TokenRule> fallbackRules, List<String> warnings) {
+        this.definition = definition;
+        this.fallback = fallback;
+        this.fallbackRules = Collections.unmodifiableList(fallbackRules);
+        this.warnings = Collections.unmodifiableList(warnings);
+        for (TokenRule rule : tableRules) tablePriorities.merge(rule.tokenTypeName, rule.priority, Math::min);
+    }
+
+    /**
+     * Returns the rules matched by the lazy engine instead of the table.
+     */
+    public List<TokenRule> getFallbackRules() {
+        return fallbackRules;
+    }
+
+    /**
+     * Returns one message per rule routed to the lazy engine, explaining why.
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * Returns the priority of a token type accepted by the table, used to break ties with the lazy engine.
+     */
+    int tablePriority(String tokenTypeName) {
+        return tablePriorities.getOrDefault(tokenTypeName, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,182 @@
+package com.compiler.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal perfect hash table of keywords, built with the CHD (compress, hash, displace) scheme.
+ * Used to reclassify identifier tokens as keywords after the DFA match, so keywords do not need
+ * their own DFA rules.
+ *
+ * Keys are hashed into buckets; buckets are placed largest first, each with the smallest
+ * displacement that sends all its keys to free slots. A lookup costs one hash over the char
+ * range, one integer remix with the bucket's displacement, and one comparison against the
+ * single candidate slot, without allocating a String for the lexeme.
+ */
+public class KeywordTable {
+    private static final int MAX_DISPLACEMENT = 1 << 16;
+
+    private final Map<String, String> entries; // keyword -> token type, in declaration order
+    private final int[] displacements; // bucket -> displacement
+    private final String[] keywords; // slot -> keyword
+    private final String[] types; // slot -> token type
+    private final int seed;
+
+    /**
+     * Builds the perfect hash for the given keywords.
+     * @param keywordTypes keyword -> token type the keyword is reclassified to
+     */
+    public KeywordTable(Map<String, String> keywordTypes) {
+        this.entries = Collections.unmodifiableMap(new LinkedHashMap<>(keywordTypes));
+        List<String> keys = new ArrayList<>(keywordTypes.keySet());
+        int n = keys.size();
+        int bucketCount = Math.max(1, (n + 3) / 4);
+        // With m == n the table is minimal; on the (unlikely) failure retry with another seed, then grow
+        int size = Math.max(1, n);
+        int chosenSeed = 0;
+        int[] disp = null;
+        while (disp == null) {
+            for (int s = 1; s <= 8 && disp == null; s++) {
+                disp = place(keys, bucketCount, size, s);
+                chosenSeed = s;
+            }
+            if (disp == null) size++;
+        }
+        this.seed = chosenSeed;
+        this.displacements = disp;
+        this.keywords = new String[size];
+        this.types = new String[size];
+        for (String key : keys) {
+            int slot = slot(key, 0, key.length(), disp, size, chosenSeed);
+            keywords[slot] = key;
+            types[slot] = keywordTypes.get(key);
+        }
+    }
+
+    /**
+     * Finds a displacement for every bucket, or returns null if some bucket cannot be placed.
+     */
+    private static int[] place(List<String> keys, int bucketCount, int size, int seed) {
+        List<List<String>> buckets = new ArrayList<>();
+        for (int b = 0; b < bucketCount; b++) buckets.add(new ArrayList<>());
+        for (String key : keys) buckets.get(hash(key, 0, key.length(), seed) % bucketCount).add(key);
+        Integer[] order = new Integer[bucketCount];
+        for (int b = 0; b < bucketCount; b++) order[b] = b;
+        Arrays.sort(order, (x, y) -> buckets.get(y).size() - buckets.get(x).size());
+
+        int[] disp = new int[bucketCount];
+        boolean[] taken = new boolean[size];
+        int[] slots = new int[keys.size()];
+        for (int b : order) {
+            List<String> bucket = buckets.get(b);
+            if (bucket.isEmpty()) break;
+            boolean placed = false;
+            for (int d = 0; d < MAX_DISPLACEMENT && !placed; d++) {
+                placed = true;
+                for (int k = 0; k < bucket.size(); k++) {
+                    String key = bucket.get(k);
+                    int slot = displacedHash(hash(key, 0, key.length(), seed), d) % size;
+                    boolean clash = taken[slot];
+                    for (int prev = 0; prev < k && !clash; prev++) clash = slots[prev] == slot;
+                    if (clash) {
+                        placed = false;
+                        break;
+                    }
+                    slots[k] = slot;
+                }
+                if (placed) {
+                    disp[b] = d;
+                    for (int k = 0; k < bucket.size(); k++) taken[slots[k]] = true;
+                }
+            }
+            if (!placed) return null;
+        }
+        return disp;
+    }
+
+    /**
+     * Returns the slot of the keyword equal to s[start, end), or -1 if it is not a keyword.
+     */
+    public int find(CharSequence s, int start, int end) {
+        if (keywords.length == 0) return -1;
+        int slot = slot(s, start, end, displacements, keywords.length, seed);
+        String candidate = keywords[slot];
+        int len = end - start;
+        if (candidate == null || candidate.length() != len) return -1;
+        for (int i = 0; i < len; i++) {
+            if (candidate.charAt(i) != s.charAt(start + i)) return -1;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the keyword stored in a slot returned by find.
+     */
+    public String keyword(int slot) {
+        return keywords[slot];
+    }
+
+    /**
+     * Returns the token type of the keyword stored in a slot returned by find.
+     */
+    public String type(int slot) {
+        return types[slot];
+    }
+
+    /**
+     * Returns the keywords and their token types, in declaration order.
+     */
+    public Map<String, String> entries() {
+        return entries;
+    }
+
+    /**
+     * Returns the number of keywords.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static int slot(CharSequence s, int start, int end, int[] disp, int size, int seed) {
+        int h = hash(s, start, end, seed); // the only pass over the characters
+        return displacedHash(h, disp[h % disp.length]) % size;
+    }
+
+    private static int hash(CharSequence s, int start, int end, int seed) {
+        int h = 0x811C9DC5 ^ (seed * 0x9E3779B9) ^ (end - start);
+        for (int i = start; i < end; i++) {
+            h ^= s.charAt(i);
+            h *= 0x01000193;
+        }
+        return mix(h);
+    }
+
+    private static int displacedHash(int h, int d) {
+        return mix((h ^ 0x3C6EF372) * 0x9E3779B9 + d * 0x61C88647);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & 0x7fffffff;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return entries.equals(((KeywordTable) o).entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return entries.hashCode();
+    }
+}
@@ -0,0 +1,191 @@
+package com.compiler.lexer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
+
+/**
+ * LazyDfa
+ * -------
+ * Matching engine for rules whose full DFA would be too large. DFA states (sets of NFA states) are
+ * built on demand while matching, only for the inputs actually seen, and kept in a cache of bounded
+ * size; when the cache is full it is cleared and rebuilt from the current state. Memory is therefore
+ * bounded, and the cost per character stays close to a table DFA while the cache is warm.
+ *
+ * A LazyDfa keeps mutable cache state and the result of the last match, so it is not thread-safe.
+ */
+public class LazyDfa {
+    private final State[] nfaStates; // epsilon-free NFA, index -> state
+    private final int startIndex;
+    private final boolean[] startChars; // char -> has a transition from the start state
+    private final int maxCachedStates;
+
+    // Cache of built DFA states: id -> set of NFA state indices, accepting NFA state, transitions
+    private final Map<BitSet, Integer> index = new HashMap<>();
+    private final List<BitSet> sets = new ArrayList<>();
+    private final List<State> accepting = new ArrayList<>();
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final Map<State, Integer> ids = new IdentityHashMap<>();
+    private int flushes = 0;
+
+    private String matchedType;
+    private int matchedPriority;
+
+    /**
+     * Builds the engine for a combined NFA (accepting states carry their token type and priority).
+     *
+     * @param nfa The NFA, for example NFA.union of the rules routed to this engine.
+     * @param maxCachedStates Maximum number of DFA states kept at once (at least 2).
+     */
+    public LazyDfa(NFA nfa, int maxCachedStates) {
+        NFA optimized = NfaOptimizer.optimize(nfa);
+        List<State> states = new ArrayList<>();
+        Deque<State> stack = new ArrayDeque<>();
+        ids.put(optimized.startState, 0);
+        states.add(optimized.startState);
+        stack.push(optimized.startState);
+        int maxChar = 0;
+        while (!stack.isEmpty()) {
+            for (Transition t : stack.pop().transitions) {
+                maxChar = Math.max(maxChar, t.symbol);
+                if (!ids.containsKey(t.toState)) {
+                    ids.put(t.toState, states.size());
+                    states.add(t.toState);
+                    stack.push(t.toState);
+                }
+            }
+        }
+        this.nfaStates = states.toArray(new State[0]);
+        this.maxCachedStates = Math.max(2, maxCachedStates);
+        this.startChars = new boolean[maxChar + 1];
+        for (Transition t : optimized.startState.transitions) startChars[t.symbol] = true;
+        this.startIndex = intern(startSet());
+    }
+
+    /**
+     * Returns true if c has a transition from the start state, i.e. a match may start with it.
+     */
+    public boolean canStart(char c) {
+        return c < startChars.length && startChars[c];
+    }
+
+    /**
+     * Finds the longest non-empty match starting at pos.
+     *
+     * @param input The input.
+     * @param pos Start position.
+     * @return End (exclusive) of the longest match, or -1 if there is none.
+     */
+    public int match(CharSequence input, int pos) {
+        if (pos >= input.length() || !canStart(input.charAt(pos))) return -1;
+        int state = startIndex;
+        int lastAcceptPos = -1;
+        State lastAccept = null;
+        for (int j = pos; j < input.length(); j++) {
+            state = step(state, input.charAt(j));
+            if (state == -1) break;
+            State accept = accepting.get(state);
+            if (accept != null) {
+                lastAccept = accept;
+                lastAcceptPos = j + 1;
+            }
+        }
+        if (lastAccept == null) return -1;
+        matchedType = lastAccept.tokenTypeName;
+        matchedPriority = lastAccept.priority;
+        return lastAcceptPos;
+    }
+
+    /**
+     * Returns the token type of the last successful match.
+     */
+    public String matchedType() {
+        return matchedType;
+    }
+
+    /**
+     * Returns the priority (lower wins) of the last successful match.
+     */
+    public int matchedPriority() {
+        return matchedPriority;
+    }
+
+    /**
+     * Returns the number of DFA states currently cached.
+     */
+    public int cachedStates() {
+        return sets.size();
+    }
+
+    /**
+     * Returns how many times the cache was cleared because it was full.
+     */
+    public int flushes() {
+        return flushes;
+    }
+
+    /**
+     * Follows (building it if needed) the transition of a cached state on c.
+     * @return id of the target state, or -1 if no NFA state survives
+     */
+    private int step(int state, char c) {
+        Integer cached = transitions.get(state).get(c);
+        if (cached != null) return cached;
+        BitSet target = new BitSet();
+        BitSet current = sets.get(state);
+        for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+            for (Transition t : nfaStates[s].transitions) {
+                if (t.symbol == c) target.set(ids.get(t.toState));
+            }
+        }
+        if (target.isEmpty()) {
+            transitions.get(state).put(c, -1);
+            return -1;
+        }
+        Integer existing = index.get(target);
+        if (existing == null && sets.size() >= maxCachedStates) {
+            // Cache full: start over, keeping only the start state and the current state
+            flushes++;
+            index.clear();
+            sets.clear();
+            accepting.clear();
+            transitions.clear();
+            intern(startSet()); // keeps id 0
+            state = intern(current);
+        }
+        int id = existing != null ? existing : intern(target);
+        transitions.get(state).put(c, id);
+        return id;
+    }
+
+    private BitSet startSet() {
+        BitSet start = new BitSet();
+        start.set(0);
+        return start;
+    }
+
+    private int intern(BitSet set) {
+        Integer existing = index.get(set);
+        if (existing != null) return existing;
+        int id = sets.size();
+        index.put(set, id);
+        sets.add(set);
+        transitions.add(new HashMap<>());
+        State best = null;
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+            State st = nfaStates[s];
+            if (st.isFinal() && (best == null || st.priority < best.priority)) best = st;
+        }
+        accepting.add(best);
+        return id;
+    }
+}
@@ -4,6 +4,8 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -11,8 +13,22 @@ import java.util.Set;
 import com.compiler.lexer.dfa.DFA;
 import com.compiler.lexer.dfa.DfaState;
 import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.regex.RegexNode;
+import com.compiler.lexer.regex.RegexNodeFactory;
+import com.compiler.lexer.regex.RegexParser;
 
 public class LexerBuilder {
+    /**
+     * Rules whose predicted DFA size (see DfaSizeEstimator) exceeds this are routed to a LazyDfa
+     * by buildHybridLexerFromFile instead of being determinized.
+     */
+    public static final long PREDICTED_STATE_LIMIT = 4096;
+
+    /**
+     * Maximum number of DFA states cached by the lazy engine of a hybrid lexer.
+     */
+    public static final int LAZY_CACHE_STATES = 1024;
+
     /**
      * Builds an NFA from a regular expression using RegexParser.
      * @param regex regular expression in infix notation
@@ -25,14 +41,24 @@ public class LexerBuilder {
 
     /**
      * Reads a token definition file and builds a list of NFAs.
-     * Each non-empty, non-comment line must have the format: regex;TokenType
+     * Each non-empty, non-comment line must have the format: regex;TokenType[;option...]
      * Lines that are empty or that start with '#' are ignored.
      * @param filePath path to the token definitions file
      * @return list of constructed NFAs
      * @throws Exception if an IO or build error occurs while reading the file
      */
     public static List<NFA> buildNfasFromFile(String filePath) throws Exception {
-        List<NFA> nfas = new ArrayList<>();
+        return buildNfasFromRules(readRulesFromFile(filePath));
+    }
+
+    /**
+     * Reads the token rules of a definition file, in file order.
+     * Later lines have higher precedence (lower numeric priority); lines without a token type are skipped.
+     * @param filePath path to the token definitions file
+     * @return list of parsed rules
+     * @throws Exception if an IO error occurs or a line uses an unknown option
+     */
+    public static List<TokenRule> readRulesFromFile(String filePath) throws Exception {
         List<String> allLines = Files.readAllLines(Paths.get(filePath));
         List<String> tokenLines = new ArrayList<>();
         for (String line : allLines) {
@@ -43,37 +69,287 @@ public class LexerBuilder {
         }
 
         // Assign priorities so that later lines have higher precedence (lower numeric priority)
+        List<TokenRule> rules = new ArrayList<>();
         int total = tokenLines.size();
         for (int idx = 0; idx < total; idx++) {
-            String line = tokenLines.get(idx);
-            String[] parts = line.split(";", 2);
-            if (parts.length != 2) continue;
-            String regex = parts[0].trim();
-            String tokenTypeName = parts[1].trim();
-            NFA nfa = buildNfaFromRegex(regex);
             int priority = total - idx - 1; // last line gets 0
-            nfa.endState.setFinal(tokenTypeName, priority);
+            TokenRule rule = TokenRule.parse(tokenLines.get(idx), priority);
+            if (rule != null) rules.add(rule);
+        }
+        return rules;
+    }
+
+    /**
+     * Builds one NFA per rule, with its final state marked with the rule's token type and priority.
+     * @param rules token rules
+     * @return list of constructed NFAs
+     */
+    public static List<NFA> buildNfasFromRules(List<TokenRule> rules) {
+        List<NFA> nfas = new ArrayList<>();
+        RegexParser parser = new RegexParser();
+        for (TokenRule rule : rules) {
+            NFA nfa = parser.buildNfa(parser.parseToAst(rule.regex, rule.ignoreCase));
+            nfa.endState.setFinal(rule.tokenTypeName, rule.priority);
             nfas.add(nfa);
         }
         return nfas;
     }
 
+    /**
+     * Collects the token types of the rules marked as skip.
+     * @param rules token rules
+     * @return set of skipped token type names
+     */
+    static Set<String> skipTypes(List<TokenRule> rules) {
+        Set<String> skip = new HashSet<>();
+        for (TokenRule rule : rules) if (rule.skip) skip.add(rule.tokenTypeName);
+        return skip;
+    }
+
+    /**
+     * Builds one perfect-hash keyword table per token type that declares keywords, so keywords
+     * are recognized after the match instead of by extra DFA rules.
+     * @param rules token rules
+     * @return token type -> keyword table
+     */
+    static Map<String, KeywordTable> keywordTables(List<TokenRule> rules) {
+        Map<String, Map<String, String>> keywords = new LinkedHashMap<>();
+        for (TokenRule rule : rules) {
+            if (rule.keywords.isEmpty()) continue;
+            keywords.computeIfAbsent(rule.tokenTypeName, t -> new LinkedHashMap<>()).putAll(rule.keywords);
+        }
+        Map<String, KeywordTable> tables = new LinkedHashMap<>();
+        keywords.forEach((type, entries) -> tables.put(type, new KeywordTable(entries)));
+        return tables;
+    }
+
+    /**
+     * Collects the value decoders declared by the rules, after checking that every match of each such
+     * rule is a literal of its decoder (see ValueDecoder.nonLiteral), so that lexing never fails to
+     * decode a token the rule accepts.
+     * @param rules token rules
+     * @return token type -> value decoder
+     * @throws IllegalArgumentException if a rule matches a string that is not a literal of its decoder,
+     * or if that cannot be ruled out within ValueDecoder's limit on the check
+     */
+    static Map<String, ValueDecoder> valueDecoders(List<TokenRule> rules) {
+        Map<String, ValueDecoder> decoders = new LinkedHashMap<>();
+        for (TokenRule rule : rules) {
+            if (rule.valueDecoder == null) continue;
+            RegexNodeFactory factory = new RegexNodeFactory();
+            RegexNode ast = new RegexParser(factory).parseToAst(rule.regex, rule.ignoreCase);
+            String example;
+            try {
+                example = rule.valueDecoder.nonLiteral(factory, ast);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Rule " + rule.tokenTypeName + " (" + rule.regex + ") declares value="
+                    + rule.valueDecoder.id + ", but " + e.getMessage(), e);
+            }
+            if (example != null) {
+                throw new IllegalArgumentException("Rule " + rule.tokenTypeName + " (" + rule.regex + ") declares value="
+                    + rule.valueDecoder.id + " but matches \"" + example + "\", which is not a " + rule.valueDecoder.id + " literal");
+            }
+            decoders.put(rule.tokenTypeName, rule.valueDecoder);
+        }
+        return decoders;
+    }
+
+    /**
+     * Parses the regex and groups of each token type whose rule names capture groups.
+     * @param rules token rules
+     * @return token type -> tagged DFA
+     * @throws IllegalArgumentException if a type with capture groups is declared by more than one rule,
+     * since its tokens could not tell which rule's groups they have
+     */
+    static Map<String, TaggedDfa> captureDfas(List<TokenRule> rules) {
+        Map<String, Integer> rulesPerType = new HashMap<>();
+        for (TokenRule rule : rules) rulesPerType.merge(rule.tokenTypeName, 1, Integer::sum);
+        Map<String, TaggedDfa> dfas = new LinkedHashMap<>();
+        for (TokenRule rule : rules) {
+            if (rule.groups.isEmpty()) continue;
+            if (rulesPerType.get(rule.tokenTypeName) > 1) {
+                throw new IllegalArgumentException("Rule " + rule.tokenTypeName + " (" + rule.regex + ") declares capture groups, but "
+                    + rulesPerType.get(rule.tokenTypeName) + " rules declare token type " + rule.tokenTypeName);
+            }
+            dfas.put(rule.tokenTypeName, new TaggedDfa(rule.regex, rule.ignoreCase, rule.groups));
+        }
+        return dfas;
+    }
+
     /**
      * Builds a portable DFA transition table (LexerDefinition) from a token definition file.
      * The provided alphabet is used to drive DFA construction and to order the transition table columns.
+     * The combined NFA goes through NfaOptimizer (epsilon elimination, pruning, merging) before subset construction.
      * @param filePath path to token definitions (same format as buildNfasFromFile)
      * @param alphabet set of characters that form the input alphabet
      * @return LexerDefinition containing the alphabet, transitions, start state and accepting mapping
      * @throws Exception on IO or build errors
      */
     public static LexerDefinition buildLexerDefinitionFromFile(String filePath, Set<Character> alphabet) throws Exception {
-        List<NFA> nfas = buildNfasFromFile(filePath);
-        NFA combined = NFA.union(nfas);
+        List<TokenRule> rules = readRulesFromFile(filePath);
+        NFA combined = NfaOptimizer.optimize(NFA.union(buildNfasFromRules(rules)));
         DFA dfa = NfaToDfaConverter.convertNfaToDfa(combined, alphabet);
-        // Convert DFA to table representation
+        return toLexerDefinition(dfa, new ArrayList<>(alphabet), rules);
+    }
+
+    /**
+     * Builds a byte-level transition table that matches the same tokens over UTF-8 encoded input.
+     * Every character transition is expanded into its UTF-8 byte sequence (see Utf8NfaConverter)
+     * before subset construction; the table's alphabet consists of byte values (characters 0..255)
+     * and is meant for ByteTokenizer.
+     * @param filePath path to token definitions (same format as buildNfasFromFile)
+     * @param alphabet set of characters that form the input alphabet
+     * @return byte-level LexerDefinition
+     * @throws IllegalArgumentException if a rule declares value= or capture groups, which ByteTokenizer does not support
+     * @throws Exception on IO or build errors
+     */
+    public static LexerDefinition buildByteLexerDefinitionFromFile(String filePath, Set<Character> alphabet) throws Exception {
+        List<TokenRule> rules = readRulesFromFile(filePath);
+        for (TokenRule rule : rules) {
+            if (rule.valueDecoder != null || !rule.groups.isEmpty()) {
+                throw new IllegalArgumentException("Rule " + rule.tokenTypeName + " (" + rule.regex + ") declares "
+                    + (rule.valueDecoder != null ? "value=" + rule.valueDecoder.id : "capture groups")
+                    + ", which ByteTokenizer does not support");
+            }
+        }
+        NFA bytes = Utf8NfaConverter.convert(NFA.union(buildNfasFromRules(rules)), alphabet);
+        Set<Character> byteAlphabet = Utf8NfaConverter.byteAlphabet(alphabet);
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(bytes, byteAlphabet);
+        return toLexerDefinition(dfa, new ArrayList<>(byteAlphabet), rules);
+    }
+
+    /**
+     * Builds a portable DFA transition table directly from the token regexes with Brzozowski derivatives,
+     * as an alternative to Thompson NFAs plus subset construction (see DerivativeDfaBuilder).
+     * @param filePath path to token definitions (same format as buildNfasFromFile)
+     * @param alphabet set of characters that form the input alphabet
+     * @return LexerDefinition recognizing the same tokens as buildLexerDefinitionFromFile
+     * @throws Exception on IO or build errors
+     */
+    public static LexerDefinition buildLexerDefinitionWithDerivatives(String filePath, Set<Character> alphabet) throws Exception {
+        return DerivativeDfaBuilder.build(readRulesFromFile(filePath), alphabet);
+    }
+
+    /**
+     * Builds a hybrid lexer with the default DFA budget (see DfaBudget.DEFAULT).
+     * @param filePath path to token definitions (same format as buildNfasFromFile)
+     * @param alphabet set of characters that form the input alphabet
+     * @return HybridLexer with one warning per rule routed to the lazy engine
+     * @throws Exception on IO or build errors
+     */
+    public static HybridLexer buildHybridLexerFromFile(String filePath, Set<Character> alphabet) throws Exception {
+        return buildHybridLexerFromFile(filePath, alphabet, DfaBudget.DEFAULT);
+    }
+
+    /**
+     * Builds a lexer that never determinizes a rule predicted to blow up, nor beyond a budget.
+     * 1. Each rule's size is estimated from its AST (DfaSizeEstimator); rules over
+     *    PREDICTED_STATE_LIMIT, typically a loop followed by a counted repetition over overlapping
+     *    characters, are matched by a LazyDfa.
+     * 2. The other rules are determinized together within the budget. If that fails, each rule is
+     *    determinized alone and the ones that exceed the budget by themselves go to the LazyDfa;
+     *    if the rest still exceeds it, rules are added one at a time in file order and each rule that
+     *    makes the combination exceed the budget goes to the LazyDfa.
+     * @param filePath path to token definitions (same format as buildNfasFromFile)
+     * @param alphabet set of characters that form the input alphabet
+     * @param budget limit for each subset construction
+     * @return HybridLexer with one warning per rule routed to the lazy engine
+     * @throws Exception on IO or build errors
+     */
+    public static HybridLexer buildHybridLexerFromFile(String filePath, Set<Character> alphabet, DfaBudget budget) throws Exception {
+        List<TokenRule> rules = readRulesFromFile(filePath);
+        RegexParser parser = new RegexParser();
+        List<TokenRule> tableRules = new ArrayList<>();
+        List<TokenRule> lazyRules = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        for (TokenRule rule : rules) {
+            long predicted = DfaSizeEstimator.estimateStates(parser.parseToAst(rule.regex, rule.ignoreCase));
+            if (predicted > PREDICTED_STATE_LIMIT) {
+                lazyRules.add(rule);
+                warnings.add("Rule " + rule.tokenTypeName + " (" + rule.regex + "): predicted "
+                    + (predicted >= DfaSizeEstimator.SATURATED ? "over 2^40" : "~" + predicted)
+                    + " DFA states, matched with a lazy DFA");
+            } else {
+                tableRules.add(rule);
+            }
+        }
+
+        DFA dfa = determinizeWithin(tableRules, alphabet, budget);
+        if (dfa == null) {
+            for (TokenRule rule : new ArrayList<>(tableRules)) {
+                if (determinizeWithin(List.of(rule), alphabet, budget) != null) continue;
+                tableRules.remove(rule);
+                lazyRules.add(rule);
+                warnings.add("Rule " + rule.tokenTypeName + " (" + rule.regex + "): exceeds the DFA budget of "
+                    + budget + " on its own, matched with a lazy DFA");
+            }
+            dfa = determinizeWithin(tableRules, alphabet, budget);
+        }
+        if (dfa == null) {
+            List<TokenRule> kept = new ArrayList<>();
+            dfa = determinizeWithin(kept, alphabet, budget);
+            for (TokenRule rule : tableRules) {
+                kept.add(rule);
+                DFA withRule = determinizeWithin(kept, alphabet, budget);
+                if (withRule != null) {
+                    dfa = withRule;
+                    continue;
+                }
+                kept.remove(kept.size() - 1);
+                lazyRules.add(rule);
+                warnings.add("Rule " + rule.tokenTypeName + " (" + rule.regex + "): exceeds the DFA budget of "
+                    + budget + " together with the rules before it, matched with a lazy DFA");
+            }
+            tableRules = kept;
+        }
+
+        LexerDefinition def = toLexerDefinition(dfa, new ArrayList<>(alphabet), rules);
+        LazyDfa fallback = lazyRules.isEmpty() ? null : new LazyDfa(NFA.union(buildNfasFromRules(lazyRules)), LAZY_CACHE_STATES);
+        return new HybridLexer(def, fallback, tableRules, lazyRules, warnings);
+    }
+
+    /**
+     * Determinizes the union of the rules, or returns null if the subset construction exceeds the budget.
+     */
+    private static DFA determinizeWithin(List<TokenRule> rules, Set<Character> alphabet, DfaBudget budget) {
+        NFA combined = NfaOptimizer.optimize(NFA.union(buildNfasFromRules(rules)));
+        try {
+            return NfaToDfaConverter.convertNfaToDfa(combined, alphabet, budget);
+        } catch (DfaBudgetExceededException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Builds a searcher that finds every occurrence of any token rule in arbitrary text.
+     * The anchored table is built exactly like buildLexerDefinitionFromFile; the search table is
+     * determinized from the same union NFA with an implicit leading ".*" (see NFA.unanchored).
+     * @param filePath path to token definitions (same format as buildNfasFromFile)
+     * @param alphabet set of characters that form the input alphabet
+     * @return TokenSearcher over both tables
+     * @throws Exception on IO or build errors
+     */
+    public static TokenSearcher buildSearcherFromFile(String filePath, Set<Character> alphabet) throws Exception {
+        List<TokenRule> rules = readRulesFromFile(filePath);
+        NFA combined = NfaOptimizer.optimize(NFA.union(buildNfasFromRules(rules)));
+        List<Character> alphabetList = new ArrayList<>(alphabet);
+        LexerDefinition anchored = toLexerDefinition(NfaToDfaConverter.convertNfaToDfa(combined, alphabet), alphabetList, rules);
+        DFA unanchoredDfa = NfaToDfaConverter.convertNfaToDfa(NFA.unanchored(combined, alphabet), alphabet);
+        LexerDefinition unanchored = toLexerDefinition(unanchoredDfa, alphabetList, rules);
+        return new TokenSearcher(anchored, unanchored);
+    }
+
+    /**
+     * Converts a DFA to its table representation, with one column per character class: characters
+     * of alphabetList whose transitions are the same in every state share a column.
+     * @param dfa the DFA to convert
+     * @param alphabetList the alphabet in column order
+     * @param rules the rules the DFA was built from (for skip types and keyword tables)
+     * @return LexerDefinition with the DFA's transitions, start state and accepting mapping
+     */
+    private static LexerDefinition toLexerDefinition(DFA dfa, List<Character> alphabetList, List<TokenRule> rules) {
         List<DfaState> states = dfa.allStates;
         int stateCount = states.size();
-        List<Character> alphabetList = new ArrayList<>(alphabet);
         int alphaSize = alphabetList.size();
 
         int[][] transitions = new int[stateCount][alphaSize];
@@ -97,6 +373,34 @@ public class LexerBuilder {
         }
 
         int startIndex = indexMap.get(dfa.startState);
-        return new LexerDefinition(alphabetList, startIndex, transitions, isFinal, tokenTypeNames);
+        return withCharacterClasses(alphabetList, startIndex, transitions, isFinal, tokenTypeNames, rules);
+    }
+
+    /**
+     * Builds a LexerDefinition from a table with one column per character, merging the columns
+     * that are equal in every state into one character class.
+     * @param alphabetList the alphabet in column order
+     * @param startState start state index
+     * @param charTransitions [state][alphabet index] -> next state or -1
+     * @param isFinal state -> is final
+     * @param tokenTypeNames state -> token name or null
+     * @param rules the rules the table was built from (for skip types, keyword tables, value decoders and capture groups)
+     * @return class-indexed LexerDefinition
+     */
+    static LexerDefinition withCharacterClasses(List<Character> alphabetList, int startState, int[][] charTransitions,
+            boolean[] isFinal, String[] tokenTypeNames, List<TokenRule> rules) {
+        int[] classes = AlphabetPartition.ofColumns(charTransitions, alphabetList.size());
+        int[] representatives = AlphabetPartition.representatives(classes);
+        int[][] transitions = new int[charTransitions.length][representatives.length];
+        for (int s = 0; s < charTransitions.length; s++) {
+            for (int k = 0; k < representatives.length; k++) transitions[s][k] = charTransitions[s][representatives[k]];
+        }
+        return new LexerDefinition.Builder(alphabetList, startState, transitions, isFinal, tokenTypeNames)
+            .alphabetClasses(classes)
+            .skipTypes(skipTypes(rules))
+            .keywordTables(keywordTables(rules))
+            .valueDecoders(valueDecoders(rules))
+            .captureDfas(captureDfas(rules))
+            .build();
     }
-}
\ No newline at end of file
+}
@@ -1,38 +1,273 @@
 package com.compiler.lexer;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Portable representation of a DFA as a transition table.
+ * Columns are character classes: alphabetClasses maps each alphabet character to its column, and
+ * characters that every state treats alike share one column.
  */
 public class LexerDefinition {
     public final List<Character> alphabet; // index -> char
+    public final int[] alphabetClasses; // alphabet index -> column (character class)
     public final int startState; // start state index
-    public final int[][] transitions; // [state][alphaIndex] -> nextState (or -1)
+    public final int[][] transitions; // [state][column] -> nextState (or -1)
     public final boolean[] isFinal; // state -> is final
     public final String[] tokenTypeNames; // state -> token name or null
+    public final Set<String> skipTypes; // token types consumed without producing a Token
+    public final Map<String, KeywordTable> keywordTables; // token type -> keywords reclassified from its matches
+    public final Map<String, ValueDecoder> valueDecoders; // token type -> decoder of its numeric value
+    public final Map<String, TaggedDfa> captureDfas; // token type -> tagged DFA of its capture groups
+
+    // Derived from the table, not serialized: ASCII chars on which a state loops back to itself
+    final long[] selfLoopLow;  // state -> bitmask over chars 0..63
+    final long[] selfLoopHigh; // state -> bitmask over chars 64..127
+    final boolean[] isSkip; // state -> accepts a skip token type
+    final boolean[] canReachAccept; // state -> some accepting state is reachable (itself included)
+    final boolean[] isTerminal; // state -> accepting with no outgoing transitions
+    final boolean[] startChars; // char -> has a transition from the start state
+    final KeywordTable[] keywordTable; // state -> keywords of the accepted token type, or null
+    final ValueDecoder[] valueDecoder; // state -> value decoder of the accepted token type, or null
+    final TaggedDfa.Automaton captureAutomaton; // the capture rules matched together (rule r = r-th entry of captureDfas), or null
+    final Map<String, Integer> captureRules; // token type -> its rule in captureAutomaton
+    final int[] captureRule; // state -> rule in captureAutomaton of the accepted token type, or -1
+    private final int[] columnOf; // char -> column, or -1 if the char is not in the alphabet
+    private volatile String fingerprint; // SHA-256 of toJson(), computed on first use
 
     public LexerDefinition(List<Character> alphabet, int startState, int[][] transitions, boolean[] isFinal, String[] tokenTypeNames) {
+        this(alphabet, identityClasses(alphabet.size()), startState, transitions, isFinal, tokenTypeNames,
+            Collections.emptySet(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Creates a definition with all its fields; see Builder for a definition that only sets some of them.
+     */
+    public LexerDefinition(List<Character> alphabet, int[] alphabetClasses, int startState, int[][] transitions, boolean[] isFinal, String[] tokenTypeNames,
+            Set<String> skipTypes, Map<String, KeywordTable> keywordTables, Map<String, ValueDecoder> valueDecoders, Map<String, TaggedDfa> captureDfas) {
         this.alphabet = alphabet;
+        this.alphabetClasses = alphabetClasses;
         this.startState = startState;
         this.transitions = transitions;
         this.isFinal = isFinal;
         this.tokenTypeNames = tokenTypeNames;
+        this.skipTypes = skipTypes;
+        this.keywordTables = keywordTables;
+        this.valueDecoders = valueDecoders;
+        this.captureDfas = captureDfas;
+        this.isSkip = new boolean[transitions.length];
+        this.keywordTable = new KeywordTable[transitions.length];
+        this.valueDecoder = new ValueDecoder[transitions.length];
+        this.captureRules = new LinkedHashMap<>();
+        for (String type : captureDfas.keySet()) captureRules.put(type, captureRules.size());
+        this.captureAutomaton = captureDfas.isEmpty() ? null : new TaggedDfa.Automaton(new ArrayList<>(captureDfas.values()));
+        this.captureRule = new int[transitions.length];
+        Arrays.fill(captureRule, -1);
+        for (int s = 0; s < transitions.length; s++) {
+            isSkip[s] = isFinal[s] && tokenTypeNames[s] != null && skipTypes.contains(tokenTypeNames[s]);
+            if (isFinal[s] && tokenTypeNames[s] != null) {
+                keywordTable[s] = keywordTables.get(tokenTypeNames[s]);
+                valueDecoder[s] = valueDecoders.get(tokenTypeNames[s]);
+                captureRule[s] = captureRules.getOrDefault(tokenTypeNames[s], -1);
+            }
+        }
+        this.selfLoopLow = new long[transitions.length];
+        this.selfLoopHigh = new long[transitions.length];
+        computeSelfLoopMasks();
+        this.canReachAccept = new boolean[transitions.length];
+        this.isTerminal = new boolean[transitions.length];
+        computeDeadAndTerminalStates();
+        int maxChar = 0;
+        for (char c : alphabet) maxChar = Math.max(maxChar, c);
+        this.columnOf = new int[maxChar + 1];
+        Arrays.fill(columnOf, -1);
+        for (int a = 0; a < alphabet.size(); a++) columnOf[alphabet.get(a)] = alphabetClasses[a];
+        this.startChars = new boolean[maxChar + 1];
+        for (int a = 0; a < alphabet.size() && transitions.length > 0; a++) {
+            if (transitions[startState][alphabetClasses[a]] != -1) startChars[alphabet.get(a)] = true;
+        }
+    }
+
+    /**
+     * Builds a LexerDefinition from its table, with optional rule data: the fields that are not set
+     * have no columns merged into classes, no skip types, keywords, value decoders or capture groups.
+     */
+    public static class Builder {
+        private final List<Character> alphabet;
+        private final int startState;
+        private final int[][] transitions;
+        private final boolean[] isFinal;
+        private final String[] tokenTypeNames;
+        private int[] alphabetClasses;
+        private Set<String> skipTypes = Collections.emptySet();
+        private Map<String, KeywordTable> keywordTables = Collections.emptyMap();
+        private Map<String, ValueDecoder> valueDecoders = Collections.emptyMap();
+        private Map<String, TaggedDfa> captureDfas = Collections.emptyMap();
+
+        /**
+         * @param alphabet index -> char
+         * @param startState start state index
+         * @param transitions [state][column] -> next state or -1 (one column per alphabet character
+         * unless alphabetClasses is set)
+         * @param isFinal state -> is final
+         * @param tokenTypeNames state -> token name or null
+         */
+        public Builder(List<Character> alphabet, int startState, int[][] transitions, boolean[] isFinal, String[] tokenTypeNames) {
+            this.alphabet = alphabet;
+            this.startState = startState;
+            this.transitions = transitions;
+            this.isFinal = isFinal;
+            this.tokenTypeNames = tokenTypeNames;
+            this.alphabetClasses = identityClasses(alphabet.size());
+        }
+
+        public Builder alphabetClasses(int[] alphabetClasses) {
+            this.alphabetClasses = alphabetClasses;
+            return this;
+        }
+
+        public Builder skipTypes(Set<String> skipTypes) {
+            this.skipTypes = skipTypes;
+            return this;
+        }
+
+        public Builder keywordTables(Map<String, KeywordTable> keywordTables) {
+            this.keywordTables = keywordTables;
+            return this;
+        }
+
+        public Builder valueDecoders(Map<String, ValueDecoder> valueDecoders) {
+            this.valueDecoders = valueDecoders;
+            return this;
+        }
+
+        public Builder captureDfas(Map<String, TaggedDfa> captureDfas) {
+            this.captureDfas = captureDfas;
+            return this;
+        }
+
+        public LexerDefinition build() {
+            return new LexerDefinition(alphabet, alphabetClasses, startState, transitions, isFinal, tokenTypeNames,
+                skipTypes, keywordTables, valueDecoders, captureDfas);
+        }
+    }
+
+    private static int[] identityClasses(int size) {
+        int[] classes = new int[size];
+        for (int a = 0; a < size; a++) classes[a] = a;
+        return classes;
     }
 
     /**
-     * Finds the alphabet index for the given character, or -1 if not present.
+     * Returns true if c has a transition from the start state, i.e. a token may start with it.
+     */
+    boolean canStartToken(char c) {
+        return c < startChars.length && startChars[c];
+    }
+
+    /**
+     * Marks the states from which an accepting state is still reachable (backwards search from
+     * the accepting states) and the accepting states with no outgoing transition. The tokenizer
+     * stops scanning as soon as it enters a state that is dead or terminal.
+     */
+    private void computeDeadAndTerminalStates() {
+        int n = transitions.length;
+        List<List<Integer>> predecessors = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) predecessors.add(new ArrayList<>());
+        for (int s = 0; s < n; s++) {
+            boolean hasOutgoing = false;
+            for (int target : transitions[s]) {
+                if (target == -1) continue;
+                hasOutgoing = true;
+                predecessors.get(target).add(s);
+            }
+            isTerminal[s] = isFinal[s] && !hasOutgoing;
+        }
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        for (int s = 0; s < n; s++) {
+            if (isFinal[s]) {
+                canReachAccept[s] = true;
+                stack.push(s);
+            }
+        }
+        while (!stack.isEmpty()) {
+            for (int pred : predecessors.get(stack.pop())) {
+                if (!canReachAccept[pred]) {
+                    canReachAccept[pred] = true;
+                    stack.push(pred);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the self-loop bitmasks: bit c is set for state s when the transition of s on
+     * the ASCII char c goes back to s. Only ASCII is covered; other chars use the table.
+     */
+    private void computeSelfLoopMasks() {
+        for (int s = 0; s < transitions.length; s++) {
+            for (int a = 0; a < alphabet.size(); a++) {
+                char c = alphabet.get(a);
+                if (c >= 128 || transitions[s][alphabetClasses[a]] != s) continue;
+                if (c < 64) selfLoopLow[s] |= 1L << c;
+                else selfLoopHigh[s] |= 1L << (c - 64);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the state loops back to itself on at least one ASCII character.
+     */
+    boolean hasSelfLoop(int state) {
+        return (selfLoopLow[state] | selfLoopHigh[state]) != 0;
+    }
+
+    /**
+     * Finds the column (character class) of the given character, or -1 if it is not in the alphabet.
      */
     public int alphabetIndex(char c) {
-        for (int i = 0; i < alphabet.size(); i++) if (alphabet.get(i) == c) return i;
-        return -1;
+        return c < columnOf.length ? columnOf[c] : -1;
+    }
+
+    /**
+     * Returns the number of columns (character classes) of the table.
+     */
+    public int columnCount() {
+        return AlphabetPartition.count(alphabetClasses);
+    }
+
+    /**
+     * Returns the SHA-256 of toJson() in hex, computed once per instance, so that caches keyed by
+     * the lexer (see TokenCache) neither serialize nor compare the table on each lookup. The tables
+     * must not be modified after the first call.
+     */
+    String fingerprint() {
+        String f = fingerprint;
+        if (f == null) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(toJson().getBytes(StandardCharsets.UTF_8));
+                fingerprint = f = HexFormat.of().formatHex(digest);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+        return f;
     }
 
     /**
@@ -45,14 +280,15 @@ public class LexerDefinition {
         sb.append("\"alphabet\":[");
         for (int i = 0; i < alphabet.size(); i++) {
             if (i > 0) sb.append(',');
-            char c = alphabet.get(i);
-            sb.append('"');
-            switch (c) {
-                case '\\' -> sb.append("\\\\");
-                case '"' -> sb.append("\\\"");
-                default -> sb.append(c);
-            }
-            sb.append('"');
+            appendEscapedString(sb, String.valueOf(alphabet.get(i)));
+        }
+        sb.append(']');
+
+        // alphabetClasses
+        sb.append(",\"alphabetClasses\":[");
+        for (int i = 0; i < alphabetClasses.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(alphabetClasses[i]);
         }
         sb.append(']');
 
@@ -84,12 +320,65 @@ public class LexerDefinition {
         sb.append(",\"tokenTypeNames\":[");
         for (int i = 0; i < tokenTypeNames.length; i++) {
             if (i > 0) sb.append(',');
-            String s = tokenTypeNames[i];
-            if (s == null) sb.append("null");
-            else {
-                sb.append('"');
-                sb.append(s.replace("\\", "\\\\").replace("\"", "\\\""));
-                sb.append('"');
+            if (tokenTypeNames[i] == null) sb.append("null");
+            else appendEscapedString(sb, tokenTypeNames[i]);
+        }
+        sb.append(']');
+
+        // skipTypes
+        sb.append(",\"skipTypes\":[");
+        int k = 0;
+        for (String s : skipTypes) {
+            if (k++ > 0) sb.append(',');
+            appendEscapedString(sb, s);
+        }
+        sb.append(']');
+
+        // values: [tokenType, decoder] pairs
+        sb.append(",\"values\":[");
+        k = 0;
+        for (Map.Entry<String, ValueDecoder> e : valueDecoders.entrySet()) {
+            if (k++ > 0) sb.append(',');
+            sb.append('[');
+            appendEscapedString(sb, e.getKey());
+            sb.append(',');
+            appendEscapedString(sb, e.getValue().id);
+            sb.append(']');
+        }
+        sb.append(']');
+
+        // captures: [tokenType, regex, "ignorecase" or "", groupName...]
+        sb.append(",\"captures\":[");
+        k = 0;
+        for (Map.Entry<String, TaggedDfa> e : captureDfas.entrySet()) {
+            if (k++ > 0) sb.append(',');
+            sb.append('[');
+            appendEscapedString(sb, e.getKey());
+            sb.append(',');
+            appendEscapedString(sb, e.getValue().regex);
+            sb.append(',');
+            appendEscapedString(sb, e.getValue().ignoreCase ? "ignorecase" : "");
+            for (String name : e.getValue().groupNames) {
+                sb.append(',');
+                appendEscapedString(sb, name);
+            }
+            sb.append(']');
+        }
+        sb.append(']');
+
+        // keywords: [tokenType, keywordType, keyword] triples
+        sb.append(",\"keywords\":[");
+        k = 0;
+        for (Map.Entry<String, KeywordTable> table : keywordTables.entrySet()) {
+            for (Map.Entry<String, String> e : table.getValue().entries().entrySet()) {
+                if (k++ > 0) sb.append(',');
+                sb.append('[');
+                appendEscapedString(sb, table.getKey());
+                sb.append(',');
+                appendEscapedString(sb, e.getValue());
+                sb.append(',');
+                appendEscapedString(sb, e.getKey());
+                sb.append(']');
             }
         }
         sb.append(']');
@@ -98,6 +387,44 @@ public class LexerDefinition {
         return sb.toString();
     }
 
+    /**
+     * Writes a JSON string whose quotes, backslashes, brackets, commas and whitespace are unicode
+     * escapes, so that it can hold any text (regexes, keywords, type names) and still be split by
+     * the loader, which strips whitespace and finds items by brackets and commas.
+     */
+    private static void appendEscapedString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' || c == '"' || c == '[' || c == ']' || c == ',' || c <= ' ' || Character.isWhitespace(c)) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Decodes the escapes of a JSON string body: the unicode escapes written by appendEscapedString,
+     * and the \\" and \\\\ of files written before every string was escaped that way.
+     */
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 == s.length()) {
+                sb.append(c);
+            } else if (s.charAt(i + 1) == 'u' && i + 6 <= s.length()) {
+                sb.append((char) Integer.parseInt(s.substring(i + 2, i + 6), 16));
+                i += 5;
+            } else {
+                sb.append(s.charAt(++i));
+            }
+        }
+        return sb.toString();
+    }
+
     /**
      * Save JSON representation to a file path.
      */
@@ -125,12 +452,19 @@ public class LexerDefinition {
             String body = mAlpha.group(1);
             Matcher m = Pattern.compile("\\\"(.*?)\\\"").matcher(body);
             while (m.find()) {
-                String ch = m.group(1);
-                char c = ch.length() > 0 ? ch.charAt(0) : '\0';
-                alphabet.add(c);
+                String ch = unescape(m.group(1));
+                alphabet.add(ch.length() > 0 ? ch.charAt(0) : '\0');
             }
         }
 
+        // alphabetClasses (absent in files written with one column per character)
+        int[] alphabetClasses = identityClasses(alphabet.size());
+        Matcher mClasses = Pattern.compile("\\\"alphabetClasses\\\":\\[(.*?)\\]").matcher(compact);
+        if (mClasses.find() && !mClasses.group(1).isEmpty()) {
+            String[] parts = mClasses.group(1).split(",");
+            for (int i = 0; i < parts.length && i < alphabetClasses.length; i++) alphabetClasses[i] = Integer.parseInt(parts[i]);
+        }
+
         // startState
         Matcher mStart = Pattern.compile("\"startState\":(\\d+)").matcher(compact);
         int startState = 0;
@@ -171,30 +505,85 @@ public class LexerDefinition {
         Matcher mTok = Pattern.compile("\\\"tokenTypeNames\\\":\\[(.*?)\\]\\}?").matcher(compact);
         String[] tokenTypeNames = new String[transitions.length];
         if (mTok.find()) {
-            String body = mTok.group(1);
-            // split respecting null and quoted strings
-            List<String> items = new ArrayList<>();
-            int idx = 0;
-            while (idx < body.length()) {
-                if (body.startsWith("null", idx)) { items.add(null); idx += 4; }
-                else if (body.charAt(idx) == '"') {
-                    int end = body.indexOf('"', idx + 1);
-                    while (end != -1 && body.charAt(end - 1) == '\\') {
-                        end = body.indexOf('"', end + 1);
-                    }
-                    String raw = body.substring(idx + 1, end);
-                    items.add(raw.replace("\\\"", "\"").replace("\\\\", "\\"));
-                    idx = end + 1;
-                } else idx++;
-                if (idx < body.length() && body.charAt(idx) == ',') idx++;
-            }
+            List<String> items = parseStringList(mTok.group(1));
             for (int i = 0; i < items.size() && i < tokenTypeNames.length; i++) tokenTypeNames[i] = items.get(i);
         }
 
         // ensure arrays sizes match
         if (tokenTypeNames.length != transitions.length) tokenTypeNames = Arrays.copyOf(tokenTypeNames, transitions.length);
 
-        return new LexerDefinition(alphabet, startState, transitions, isFinal, tokenTypeNames);
+        // skipTypes (absent in files written before skip rules existed)
+        Set<String> skipTypes = new LinkedHashSet<>();
+        Matcher mSkip = Pattern.compile("\\\"skipTypes\\\":\\[(.*?)\\]").matcher(compact);
+        if (mSkip.find()) skipTypes.addAll(parseStringList(mSkip.group(1)));
+
+        // values (absent in files written before value decoders existed)
+        Map<String, ValueDecoder> valueDecoders = new LinkedHashMap<>();
+        Matcher mValues = Pattern.compile("\\\"values\\\":\\[((?:\\[[^\\]]*\\],?)*)\\]").matcher(compact);
+        if (mValues.find()) {
+            Matcher pair = Pattern.compile("\\[(.*?)\\]").matcher(mValues.group(1));
+            while (pair.find()) {
+                List<String> items = parseStringList(pair.group(1));
+                if (items.size() == 2) valueDecoders.put(items.get(0), ValueDecoder.of(items.get(1)));
+            }
+        }
+
+        // captures (absent in files written before capture groups existed)
+        Map<String, TaggedDfa> captureDfas = new LinkedHashMap<>();
+        Matcher mCaptures = Pattern.compile("\\\"captures\\\":\\[((?:\\[[^\\]]*\\],?)*)\\]").matcher(compact);
+        if (mCaptures.find()) {
+            Matcher entry = Pattern.compile("\\[(.*?)\\]").matcher(mCaptures.group(1));
+            while (entry.find()) {
+                List<String> items = new ArrayList<>();
+                for (String item : entry.group(1).split(",")) items.add(unescape(item.substring(1, item.length() - 1)));
+                if (items.size() < 3) continue;
+                captureDfas.put(items.get(0), new TaggedDfa(items.get(1), items.get(2).equals("ignorecase"), items.subList(3, items.size())));
+            }
+        }
+
+        // keywords (absent in files written before keyword tables existed)
+        Map<String, Map<String, String>> keywords = new LinkedHashMap<>();
+        Matcher mKw = Pattern.compile("\\\"keywords\\\":\\[(.*)\\]\\}").matcher(compact);
+        if (mKw.find()) {
+            Matcher triple = Pattern.compile("\\[(.*?)\\]").matcher(mKw.group(1));
+            while (triple.find()) {
+                List<String> items = parseStringList(triple.group(1));
+                if (items.size() != 3) continue;
+                keywords.computeIfAbsent(items.get(0), t -> new LinkedHashMap<>()).put(items.get(2), items.get(1));
+            }
+        }
+        Map<String, KeywordTable> keywordTables = new LinkedHashMap<>();
+        keywords.forEach((type, entries) -> keywordTables.put(type, new KeywordTable(entries)));
+
+        return new Builder(alphabet, startState, transitions, isFinal, tokenTypeNames)
+            .alphabetClasses(alphabetClasses)
+            .skipTypes(skipTypes)
+            .keywordTables(keywordTables)
+            .valueDecoders(valueDecoders)
+            .captureDfas(captureDfas)
+            .build();
+    }
+
+    /**
+     * Splits the body of a JSON array of quoted strings and nulls.
+     */
+    private static List<String> parseStringList(String body) {
+        // split respecting null and quoted strings
+        List<String> items = new ArrayList<>();
+        int idx = 0;
+        while (idx < body.length()) {
+            if (body.startsWith("null", idx)) { items.add(null); idx += 4; }
+            else if (body.charAt(idx) == '"') {
+                int end = body.indexOf('"', idx + 1);
+                while (end != -1 && body.charAt(end - 1) == '\\') {
+                    end = body.indexOf('"', end + 1);
+                }
+                items.add(unescape(body.substring(idx + 1, end)));
+                idx = end + 1;
+            } else idx++;
+            if (idx < body.length() && body.charAt(idx) == ',') idx++;
+        }
+        return items;
     }
 
     @Override
@@ -203,6 +592,7 @@ public class LexerDefinition {
         if (o == null || getClass() != o.getClass()) return false;
         LexerDefinition other = (LexerDefinition) o;
         if (this.startState != other.startState) return false;
+        if (!Arrays.equals(this.alphabetClasses, other.alphabetClasses)) return false;
         if (this.alphabet.size() != other.alphabet.size()) return false;
         for (int i = 0; i < alphabet.size(); i++) if (!this.alphabet.get(i).equals(other.alphabet.get(i))) return false;
         if (this.transitions.length != other.transitions.length) return false;
@@ -218,16 +608,22 @@ public class LexerDefinition {
             String b = other.tokenTypeNames[i];
             if (a == null ? b != null : !a.equals(b)) return false;
         }
-        return true;
+        return this.skipTypes.equals(other.skipTypes) && this.keywordTables.equals(other.keywordTables)
+            && this.valueDecoders.equals(other.valueDecoders) && this.captureDfas.equals(other.captureDfas);
     }
 
     @Override
     public int hashCode() {
         int result = Integer.hashCode(startState);
         result = 31 * result + alphabet.hashCode();
+        result = 31 * result + Arrays.hashCode(alphabetClasses);
         result = 31 * result + Arrays.deepHashCode(transitions);
         result = 31 * result + Arrays.hashCode(isFinal);
         result = 31 * result + Arrays.hashCode(tokenTypeNames);
+        result = 31 * result + skipTypes.hashCode();
+        result = 31 * result + keywordTables.hashCode();
+        result = 31 * result + valueDecoders.hashCode();
+        result = 31 * result + captureDfas.hashCode();
         return result;
     }
 }
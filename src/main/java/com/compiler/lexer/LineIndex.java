@@ -0,0 +1,100 @@
+package com.compiler.lexer;
+
+import java.util.Arrays;
+
+/**
+ * Line-start offset index for an input, used to resolve token offsets to line and column
+ * lazily, only when a diagnostic needs them. The tokenizer itself never tracks lines.
+ *
+ * Lines are terminated by '\n' (so "\r\n" also works; the '\r' counts as the last column).
+ * Lines and columns are 1-based; offsets are 0-based, as in Token.start and Token.end.
+ *
+ * Example usage:
+ * <pre>
+ *     LineIndex lines = LineIndex.of(input);
+ *     int line = lines.line(token.start);
+ *     int column = lines.column(token.start);
+ * </pre>
+ */
+public class LineIndex {
+    private final int[] lineStarts; // lineStarts[i] = offset of the first char of line i + 1
+    private final int lineCount;
+    private final int length;
+
+    private LineIndex(int[] lineStarts, int lineCount, int length) {
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+        this.length = length;
+    }
+
+    /**
+     * Builds the index in one pass over the input, jumping between newlines with
+     * String.indexOf (a vectorized intrinsic in the JDK).
+     */
+    public static LineIndex of(String input) {
+        int[] starts = new int[16];
+        int count = 1; // starts[0] = 0
+        int nl = input.indexOf('\n');
+        while (nl != -1) {
+            if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = nl + 1;
+            nl = input.indexOf('\n', nl + 1);
+        }
+        return new LineIndex(starts, count, input.length());
+    }
+
+    /**
+     * Builds the index for any CharSequence (StringBuilder, CharBuffer, ...).
+     */
+    public static LineIndex of(CharSequence input) {
+        if (input instanceof String) return of((String) input);
+        int[] starts = new int[16];
+        int count = 1;
+        int n = input.length();
+        for (int i = 0; i < n; i++) {
+            if (input.charAt(i) != '\n') continue;
+            if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = i + 1;
+        }
+        return new LineIndex(starts, count, n);
+    }
+
+    /**
+     * Returns the number of lines (a trailing newline starts a last, empty line).
+     */
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the 1-based line containing the given offset, by binary search.
+     * @param offset 0-based offset, between 0 and the input length (inclusive)
+     * @throws IndexOutOfBoundsException if the offset is outside the input
+     */
+    public int line(int offset) {
+        if (offset < 0 || offset > length) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " outside input of length " + length);
+        }
+        int idx = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        // On a miss, binarySearch returns -(insertion point) - 1; the line is the one before it
+        return idx >= 0 ? idx + 1 : -idx - 1;
+    }
+
+    /**
+     * Returns the 1-based column of the given offset within its line.
+     * @param offset 0-based offset, between 0 and the input length (inclusive)
+     */
+    public int column(int offset) {
+        return offset - lineStarts[line(offset) - 1] + 1;
+    }
+
+    /**
+     * Returns the 0-based offset of the first char of the given 1-based line.
+     */
+    public int lineStart(int line) {
+        if (line < 1 || line > lineCount) {
+            throw new IndexOutOfBoundsException("Line " + line + " outside 1.." + lineCount);
+        }
+        return lineStarts[line - 1];
+    }
+}
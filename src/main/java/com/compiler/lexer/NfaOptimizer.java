@@ -0,0 +1,216 @@
+package com.compiler.lexer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
+
+/**
+ * NfaOptimizer
+ * ------------
+ * Shrinks a (combined) Thompson NFA before subset construction. Most Thompson states are pure
+ * epsilon plumbing, and NfaToDfaConverter pays for them in every epsilon-closure.
+ *
+ * Passes:
+ * 1. Epsilon elimination: each state gets the symbol transitions of its epsilon-closure, and
+ *    becomes final with the best-priority token of the final states in that closure.
+ *    Only the start state and targets of symbol transitions are kept.
+ * 2. Pruning: states from which no final state is reachable are removed.
+ * 3. Merging: states with the same finality, token, priority and outgoing transitions (after
+ *    renaming merged targets) are merged, repeated until nothing changes.
+ *
+ * The input NFA is not modified; the result is a new NFA without epsilon transitions whose
+ * end state is null (accepting states carry their token type, as after NFA.union).
+ */
+public class NfaOptimizer {
+    /**
+     * Default constructor for NfaOptimizer.
+     */
+    public NfaOptimizer() {}
+
+    /**
+     * Returns an equivalent NFA without epsilon transitions, dead states or duplicate states.
+     *
+     * @param nfa The NFA to optimize.
+     * @return The optimized NFA.
+     */
+    public static NFA optimize(NFA nfa) {
+        // 1. Epsilon elimination over the states reachable from the start
+        Map<State, State> copies = new LinkedHashMap<>();
+        Deque<State> work = new ArrayDeque<>();
+        State start = nfa.getStartState();
+        copies.put(start, new State());
+        work.push(start);
+        while (!work.isEmpty()) {
+            State original = work.pop();
+            State copy = copies.get(original);
+            for (State s : epsilonClosure(original)) {
+                if (s.isFinal() && (!copy.isFinal() || s.priority < copy.priority)) {
+                    copy.setFinal(s.tokenTypeName, s.priority);
+                }
+                for (Transition t : s.transitions) {
+                    if (t.symbol == null) continue;
+                    State target = copies.get(t.toState);
+                    if (target == null) {
+                        target = new State();
+                        copies.put(t.toState, target);
+                        work.push(t.toState);
+                    }
+                    copy.transitions.add(new Transition(t.symbol, target));
+                }
+            }
+        }
+        List<State> states = new ArrayList<>(copies.values());
+        State newStart = copies.get(start);
+        for (State s : states) s.transitions = dedupe(s.transitions);
+
+        // 2. Prune states that cannot reach a final state
+        Set<State> live = liveStates(states);
+        for (State s : states) s.transitions.removeIf(t -> !live.contains(t.toState));
+        states.removeIf(s -> s != newStart && !live.contains(s));
+
+        // 3. Merge equivalent states until a fixpoint is reached
+        State mergedStart = mergeEquivalent(states, newStart);
+        return new NFA(mergedStart, null);
+    }
+
+    /**
+     * Computes the epsilon-closure of a single state, including the state itself.
+     */
+    private static Set<State> epsilonClosure(State state) {
+        Set<State> closure = new HashSet<>();
+        Deque<State> stack = new ArrayDeque<>();
+        closure.add(state);
+        stack.push(state);
+        while (!stack.isEmpty()) {
+            for (State next : stack.pop().getEpsilonTransitions()) {
+                if (closure.add(next)) stack.push(next);
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * Returns the states that can reach a final state (including final states).
+     */
+    private static Set<State> liveStates(List<State> states) {
+        Map<State, List<State>> reverse = new IdentityHashMap<>();
+        for (State s : states) {
+            for (Transition t : s.transitions) {
+                reverse.computeIfAbsent(t.toState, k -> new ArrayList<>()).add(s);
+            }
+        }
+        Set<State> live = new HashSet<>();
+        Deque<State> stack = new ArrayDeque<>();
+        for (State s : states) {
+            if (s.isFinal() && live.add(s)) stack.push(s);
+        }
+        while (!stack.isEmpty()) {
+            for (State pred : reverse.getOrDefault(stack.pop(), Collections.emptyList())) {
+                if (live.add(pred)) stack.push(pred);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Repeatedly merges states with identical signatures (finality, token, priority, transitions).
+     * @return the representative of the start state
+     */
+    private static State mergeEquivalent(List<State> states, State start) {
+        Map<State, State> representative = new IdentityHashMap<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Map<Signature, State> seen = new HashMap<>();
+            List<State> kept = new ArrayList<>();
+            for (State s : states) {
+                Signature sig = new Signature(s);
+                State rep = seen.get(sig);
+                if (rep == null) {
+                    seen.put(sig, s);
+                    kept.add(s);
+                } else {
+                    representative.put(s, rep);
+                    changed = true;
+                }
+            }
+            if (!changed) break;
+            for (State s : kept) {
+                List<Transition> renamed = new ArrayList<>();
+                for (Transition t : s.transitions) {
+                    renamed.add(new Transition(t.symbol, resolve(representative, t.toState)));
+                }
+                s.transitions = dedupe(renamed);
+            }
+            states.clear();
+            states.addAll(kept);
+        }
+        return resolve(representative, start);
+    }
+
+    private static State resolve(Map<State, State> representative, State s) {
+        State rep = representative.get(s);
+        while (rep != null) {
+            s = rep;
+            rep = representative.get(s);
+        }
+        return s;
+    }
+
+    /**
+     * Removes duplicate (symbol, target) transitions, keeping the first occurrence.
+     */
+    private static List<Transition> dedupe(List<Transition> transitions) {
+        Set<List<Object>> seen = new HashSet<>();
+        List<Transition> result = new ArrayList<>();
+        for (Transition t : transitions) {
+            if (seen.add(List.of(t.symbol, t.toState))) result.add(t);
+        }
+        return result;
+    }
+
+    /**
+     * Everything that determines the language and token of a state, given its targets.
+     */
+    private static final class Signature {
+        final boolean isFinal;
+        final String tokenTypeName;
+        final int priority;
+        final Set<List<Object>> transitions = new HashSet<>();
+
+        Signature(State s) {
+            this.isFinal = s.isFinal();
+            this.tokenTypeName = s.tokenTypeName;
+            this.priority = s.priority;
+            for (Transition t : s.transitions) transitions.add(List.of(t.symbol, t.toState));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Signature)) return false;
+            Signature other = (Signature) o;
+            return isFinal == other.isFinal && priority == other.priority
+                && Objects.equals(tokenTypeName, other.tokenTypeName)
+                && transitions.equals(other.transitions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(isFinal, tokenTypeName, priority, transitions);
+        }
+    }
+}
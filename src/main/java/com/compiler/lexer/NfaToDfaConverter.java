@@ -32,12 +32,28 @@ public class NfaToDfaConverter {
 	/**
 	 * Converts an NFA to a DFA using the subset construction algorithm.
 	 * Each DFA state represents a set of NFA states. Final states are marked if any NFA state in the set is final.
+	 * The alphabet is first split into equivalence classes (see AlphabetPartition), and each DFA state
+	 * computes one move and epsilon-closure per class rather than per character.
 	 *
 	 * @param nfa The input NFA
 	 * @param alphabet The input alphabet (set of characters)
 	 * @return The resulting DFA
 	 */
 	public static DFA convertNfaToDfa(NFA nfa, Set<Character> alphabet) {
+		return convertNfaToDfa(nfa, alphabet, DfaBudget.UNLIMITED);
+	}
+
+	/**
+	 * Converts an NFA to a DFA like convertNfaToDfa(nfa, alphabet), but stops as soon as the DFA
+	 * under construction exceeds the budget's state count or estimated memory.
+	 *
+	 * @param nfa The input NFA
+	 * @param alphabet The input alphabet (set of characters)
+	 * @param budget Limits on states and estimated memory
+	 * @return The resulting DFA
+	 * @throws DfaBudgetExceededException if the budget is exceeded
+	 */
+	public static DFA convertNfaToDfa(NFA nfa, Set<Character> alphabet, DfaBudget budget) {
 		List<DfaState> dfaStates = new ArrayList<>();
 		Queue<DfaState> unmarkedStates = new LinkedList<>();
 
@@ -46,11 +62,20 @@ public class NfaToDfaConverter {
 		DfaState startDfaState = new DfaState(startNfaStates);
 		dfaStates.add(startDfaState);
 		unmarkedStates.add(startDfaState);
+		long estimatedBytes = DfaBudget.STATE_BYTES + DfaBudget.NFA_STATE_REF_BYTES * startNfaStates.size();
+
+		// Characters that no NFA transition tells apart are handled once per equivalence class
+		List<Character> symbols = new ArrayList<>(alphabet);
+		int[] classOf = AlphabetPartition.ofNfa(nfa, symbols);
+		List<List<Character>> classes = new ArrayList<>();
+		for (int i = 0; i < AlphabetPartition.count(classOf); i++) classes.add(new ArrayList<>());
+		for (int a = 0; a < symbols.size(); a++) classes.get(classOf[a]).add(symbols.get(a));
 
 		// 2. Process states
 		while (!unmarkedStates.isEmpty()) {
 			DfaState currentDfaState = unmarkedStates.poll();
-			for (Character c : alphabet) {
+			for (List<Character> members : classes) {
+				char c = members.get(0);
 				Set<State> nextNfaStates = move(currentDfaState.nfaStates, c);
 				Set<State> targetNfaStates = epsilonClosure(nextNfaStates);
 				if (targetNfaStates.isEmpty()) continue;
@@ -59,8 +84,13 @@ public class NfaToDfaConverter {
 					targetDfaState = new DfaState(targetNfaStates);
 					dfaStates.add(targetDfaState);
 					unmarkedStates.add(targetDfaState);
+					estimatedBytes += DfaBudget.STATE_BYTES + DfaBudget.NFA_STATE_REF_BYTES * targetNfaStates.size();
+				}
+				for (Character member : members) currentDfaState.addTransition(member, targetDfaState);
+				estimatedBytes += DfaBudget.TRANSITION_BYTES * members.size();
+				if (dfaStates.size() > budget.maxStates || estimatedBytes > budget.maxBytes) {
+					throw new DfaBudgetExceededException(budget, dfaStates.size(), estimatedBytes);
 				}
-				currentDfaState.addTransition(c, targetDfaState);
 			}
 		}
 
@@ -0,0 +1,149 @@
+package com.compiler.lexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * TokenStore whose tokens live outside the Java heap, for inputs with hundreds of millions of tokens.
+ * Tokens are fixed-size records (type index, start, end, flags, value; 24 bytes) in chunks of direct
+ * ByteBuffers, or in chunks of a memory-mapped temporary file that the operating system can page out.
+ * Only the chunk list and the table of token type names are on the heap, so the token volume adds
+ * no work for the garbage collector.
+ *
+ * Direct chunks still count against -XX:MaxDirectMemorySize, which defaults to the maximum heap
+ * size, and Java has no call to free them: their memory is returned only when the garbage collector
+ * finds them unreachable. For multi-gigabyte inputs, use a mapped store, whose chunks are backed by
+ * the file and paged by the operating system rather than reserved from the direct memory limit.
+ * Close the store when done: close drops the chunks, so that they can be reclaimed even while the
+ * store is still referenced, and deletes the temporary file of a mapped store. The store cannot be
+ * used after it is closed. Not thread-safe while it is being filled.
+ */
+public class OffHeapTokenStore implements TokenSink, TokenStore, AutoCloseable {
+    private static final int RECORD_BYTES = 24; // type index, start, end, flags, value
+    private static final int OUT_OF_RANGE = 1; // flag: the value does not fit its decoder
+    private static final int CHUNK_SHIFT = 16; // records per chunk: 65536 (1.5 MB)
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+
+    private final CharSequence source;
+    private final FileChannel file; // null for direct buffers
+    private final Path path;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final List<String> types = new ArrayList<>();
+    private final Map<String, Integer> typeIndex = new HashMap<>();
+    private int size;
+
+    private OffHeapTokenStore(CharSequence source, FileChannel file, Path path) {
+        this.source = source;
+        this.file = file;
+        this.path = path;
+    }
+
+    /**
+     * Creates a store backed by direct ByteBuffers.
+     * @param source the tokenized input, which token offsets refer to
+     */
+    public static OffHeapTokenStore direct(CharSequence source) {
+        return new OffHeapTokenStore(source, null, null);
+    }
+
+    /**
+     * Creates a store backed by a memory-mapped temporary file in the given directory, deleted on close.
+     * @param source the tokenized input, which token offsets refer to
+     * @param directory directory of the temporary file
+     * @throws IOException if the file cannot be created
+     */
+    public static OffHeapTokenStore mapped(CharSequence source, Path directory) throws IOException {
+        Path path = Files.createTempFile(directory, "tokens", ".bin");
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        return new OffHeapTokenStore(source, file, path);
+    }
+
+    @Override
+    public void add(String type, int start, int end, long value, boolean outOfRange) {
+        int chunk = size >>> CHUNK_SHIFT;
+        if (chunk == chunks.size()) chunks.add(newChunk(chunk));
+        Integer t = typeIndex.get(type);
+        if (t == null) {
+            t = types.size();
+            typeIndex.put(type, t);
+            types.add(type);
+        }
+        int at = (size & (CHUNK_RECORDS - 1)) * RECORD_BYTES;
+        chunks.get(chunk).putInt(at, t).putInt(at + 4, start).putInt(at + 8, end).putInt(at + 12, outOfRange ? OUT_OF_RANGE : 0).putLong(at + 16, value);
+        size++;
+    }
+
+    private ByteBuffer newChunk(int chunk) {
+        int bytes = CHUNK_RECORDS * RECORD_BYTES;
+        if (file == null) return ByteBuffer.allocateDirect(bytes);
+        try {
+            return file.map(FileChannel.MapMode.READ_WRITE, (long) chunk * bytes, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow token file " + path, e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String type(int i) {
+        return types.get(record(i).getInt(offset(i)));
+    }
+
+    @Override
+    public int start(int i) {
+        return record(i).getInt(offset(i) + 4);
+    }
+
+    @Override
+    public int end(int i) {
+        return record(i).getInt(offset(i) + 8);
+    }
+
+    @Override
+    public long longValue(int i) {
+        return record(i).getLong(offset(i) + 16);
+    }
+
+    @Override
+    public boolean outOfRange(int i) {
+        return (record(i).getInt(offset(i) + 12) & OUT_OF_RANGE) != 0;
+    }
+
+    @Override
+    public String lexeme(int i) {
+        return source.subSequence(start(i), end(i)).toString();
+    }
+
+    /**
+     * Drops the chunks and deletes the temporary file of a mapped store. The chunks' memory is
+     * returned when the garbage collector next reclaims them.
+     */
+    @Override
+    public void close() throws IOException {
+        chunks.clear();
+        size = 0;
+        if (file != null) file.close();
+    }
+
+    private ByteBuffer record(int i) {
+        return chunks.get(Objects.checkIndex(i, size) >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(int i) {
+        return (i & (CHUNK_RECORDS - 1)) * RECORD_BYTES;
+    }
+}
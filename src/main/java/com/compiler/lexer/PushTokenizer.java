@@ -0,0 +1,282 @@
+package com.compiler.lexer;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Push-based tokenizer for input that arrives in chunks (sockets, log shippers).
+ * The caller feeds chunks of any size with feed and ends the stream with finish; the DFA state,
+ * the last accepting position and the unconsumed tail of the input are kept between calls.
+ * Each token is passed to the sink as soon as it is certain to be maximal, i.e. as soon as the
+ * DFA dies or reaches a terminal state, so most tokens are emitted during the feed that completes them.
+ *
+ * Produces the Tokens of Tokenizer.tokenize (maximal munch, skip rules, keywords, capture groups,
+ * UNKNOWN tokens) for a table-only LexerDefinition. Names are not interned (there is no
+ * Tokenizer.setSymbolTable), and value decoders do not apply, as they only fill the value column of
+ * a TokenStore. Token offsets are offsets in the whole stream.
+ * Only the characters of the token being matched are retained from one chunk to the next.
+ */
+public class PushTokenizer {
+    /**
+     * Longest UNKNOWN token emitted in coalescing mode; a longer run of unrecognized input is split
+     * into several tokens, so that the retained input stays bounded on streams of garbage.
+     */
+    public static final int MAX_UNKNOWN_RUN = 4096;
+
+    private final LexerDefinition def;
+    private final Consumer<Token> sink;
+    private boolean coalesceUnknown = false;
+
+    // Input retained from earlier chunks: stream offsets [carryStart, carryStart + carry.length())
+    private final StringBuilder carry = new StringBuilder();
+    private int carryStart = 0;
+    // Chunk being fed: chunk[chunkOff] is at stream offset chunkStart (null outside feed)
+    private char[] chunk;
+    private int chunkOff;
+    private int chunkStart;
+
+    private int pos = 0;  // start of the token being matched
+    private int scan = 0; // next character to run through the DFA
+    private int state;
+    private int lastAcceptState = -1;
+    private int lastAcceptPos = -1;
+    private int unknownStart = -1; // start of the pending UNKNOWN span in coalescing mode
+
+    // Capture groups: the tagged DFA of the grouped rules reads each char the table reads (see Tokenizer)
+    private final TaggedDfa.Automaton captureAutomaton; // null if no rule has groups
+    private int[] registers;
+    private int[] spareRegisters;
+    private int[] saved; // registers of the last grouped match the table accepted
+    private int captureState = -1; // state of the tagged DFA, or -1 once no grouped rule can match
+    private int savedRule = -1; // rule of the saved match in captureAutomaton, or -1
+    private int savedEnd;
+
+    /**
+     * @param def the lexer table
+     * @param sink receives the tokens, in order
+     */
+    public PushTokenizer(LexerDefinition def, Consumer<Token> sink) {
+        this.def = def;
+        this.sink = sink;
+        this.captureAutomaton = def.captureAutomaton;
+        if (captureAutomaton != null) {
+            registers = captureAutomaton.newRegisters();
+            spareRegisters = captureAutomaton.newRegisters();
+            saved = new int[captureAutomaton.width];
+        }
+        resetMatch();
+    }
+
+    /**
+     * Enables or disables coalescing of unrecognized input into one UNKNOWN token per run
+     * (disabled by default), as Tokenizer.setCoalesceUnknown, except that runs longer than
+     * MAX_UNKNOWN_RUN characters are emitted as several tokens.
+     */
+    public void setCoalesceUnknown(boolean coalesceUnknown) {
+        this.coalesceUnknown = coalesceUnknown;
+    }
+
+    /**
+     * Feeds the next chunk of the stream, chars[offset, offset + length).
+     * Tokens that end in the chunk are emitted unless they could still be extended by later input.
+     * The array is not retained after the call returns.
+     * @throws IndexOutOfBoundsException if the region is outside the array
+     */
+    public void feed(char[] chars, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, chars.length);
+        chunk = chars;
+        chunkOff = offset;
+        chunkStart = carryStart + carry.length();
+        int end = chunkStart + length;
+        run(end, false);
+
+        // Keep only what the next feed may still need: the pending UNKNOWN span or the current token
+        int keep = unknownStart != -1 ? unknownStart : pos;
+        if (keep < chunkStart) {
+            carry.delete(0, keep - carryStart);
+        } else {
+            carry.setLength(0);
+        }
+        int from = Math.max(keep, chunkStart);
+        carry.append(chars, offset + (from - chunkStart), end - from);
+        carryStart = keep;
+        chunk = null;
+    }
+
+    /**
+     * Ends the stream: emits the tokens still pending and resets the tokenizer,
+     * so that it can be fed a new stream starting at offset 0.
+     */
+    public void finish() {
+        chunkStart = carryStart + carry.length();
+        int end = chunkStart;
+        run(end, true);
+        if (unknownStart != -1) {
+            sink.accept(new Token("UNKNOWN", text(unknownStart, end), unknownStart, end));
+        }
+        carry.setLength(0);
+        carryStart = 0;
+        pos = 0;
+        scan = 0;
+        unknownStart = -1;
+        resetMatch();
+    }
+
+    /**
+     * Matches and emits tokens up to stream offset end. Unless last is set, stops when the
+     * current match could still grow with input beyond end.
+     */
+    private void run(int end, boolean last) {
+        while (true) {
+            boolean decided = false; // true once the current match cannot grow any more
+            while (scan < end) {
+                char c = charAt(scan);
+                int a = def.alphabetIndex(c);
+                if (a == -1) {
+                    decided = true;
+                    break;
+                }
+                state = def.transitions[state][a];
+                if (state == -1 || !def.canReachAccept[state]) {
+                    decided = true;
+                    break;
+                }
+                if (captureState != -1) stepCaptures(c, scan + 1);
+                if (def.isFinal[state]) {
+                    lastAcceptState = state;
+                    lastAcceptPos = scan + 1;
+                    if (captureState != -1 && def.captureRule[state] != -1) save(def.captureRule[state], scan + 1);
+                }
+                scan++;
+                if (def.isTerminal[state]) {
+                    decided = true;
+                    break;
+                }
+                if (chunk != null && scan >= chunkStart && captureState == -1 && def.hasSelfLoop(state)) {
+                    int k = skipSelfLoop(scan, end, state);
+                    if (k > scan && def.isFinal[state]) lastAcceptPos = k;
+                    scan = k;
+                }
+            }
+            if (pos >= end || (!decided && !last)) return;
+            emit(end);
+            resetMatch();
+            scan = pos;
+        }
+    }
+
+    /**
+     * Emits the decided match at pos (or the UNKNOWN input there) and advances pos past it.
+     */
+    private void emit(int end) {
+        if (lastAcceptState == -1) {
+            if (coalesceUnknown) {
+                if (unknownStart == -1) unknownStart = pos;
+                pos++;
+                while (pos < end && pos - unknownStart < MAX_UNKNOWN_RUN && !def.canStartToken(charAt(pos))) pos++;
+                if (pos - unknownStart == MAX_UNKNOWN_RUN) {
+                    sink.accept(new Token("UNKNOWN", text(unknownStart, pos), unknownStart, pos));
+                    unknownStart = -1;
+                }
+            } else {
+                sink.accept(new Token("UNKNOWN", text(pos, pos + 1), pos, pos + 1));
+                pos++;
+            }
+            return;
+        }
+        if (unknownStart != -1) {
+            sink.accept(new Token("UNKNOWN", text(unknownStart, pos), unknownStart, pos));
+            unknownStart = -1;
+        }
+        if (!def.isSkip[lastAcceptState]) {
+            String lexeme = text(pos, lastAcceptPos);
+            String type = def.tokenTypeNames[lastAcceptState];
+            KeywordTable keywords = def.keywordTable[lastAcceptState];
+            int slot = keywords == null ? -1 : keywords.find(lexeme, 0, lexeme.length());
+            if (slot != -1) {
+                type = keywords.type(slot);
+                lexeme = keywords.keyword(slot);
+            }
+            int rule = def.captureRule[lastAcceptState];
+            int[] groups = slot == -1 && rule != -1 && rule == savedRule && savedEnd == lastAcceptPos
+                ? Arrays.copyOf(saved, captureAutomaton.tagCount(rule)) : null;
+            sink.accept(new Token(type, lexeme, pos, lastAcceptPos, -1, groups));
+        }
+        pos = lastAcceptPos;
+    }
+
+    /**
+     * Starts matching a new token at pos.
+     */
+    private void resetMatch() {
+        state = def.startState;
+        lastAcceptState = -1;
+        lastAcceptPos = -1;
+        savedRule = -1;
+        if (captureAutomaton != null) {
+            captureState = 0;
+            captureAutomaton.start(registers, pos);
+        }
+    }
+
+    /**
+     * Steps the tagged DFA over c, the char before position.
+     */
+    private void stepCaptures(char c, int position) {
+        captureState = captureAutomaton.step(captureState, c, registers, spareRegisters, position);
+        if (captureState != -1) {
+            int[] swap = registers;
+            registers = spareRegisters;
+            spareRegisters = swap;
+        }
+    }
+
+    /**
+     * Keeps the registers of the configuration that accepts the rule, for the match [pos, end).
+     */
+    private void save(int rule, int end) {
+        int slot = captureAutomaton.acceptSlot(captureState, rule);
+        if (slot == -1) return;
+        System.arraycopy(registers, slot * captureAutomaton.width, saved, 0, captureAutomaton.width);
+        savedRule = rule;
+        savedEnd = end;
+    }
+
+    /**
+     * Returns the character at a stream offset, from the retained input or the current chunk.
+     */
+    private char charAt(int i) {
+        return i < chunkStart ? carry.charAt(i - carryStart) : chunk[chunkOff + (i - chunkStart)];
+    }
+
+    /**
+     * Returns the characters of the stream offsets [start, end), which may span the retained input and the chunk.
+     */
+    private String text(int start, int end) {
+        if (start >= chunkStart) return new String(chunk, chunkOff + (start - chunkStart), end - start);
+        if (end <= chunkStart) return carry.substring(start - carryStart, end - carryStart);
+        return carry.substring(start - carryStart) + new String(chunk, chunkOff, end - chunkStart);
+    }
+
+    /**
+     * Returns the first offset at or after j (inside the current chunk) whose character leaves the
+     * given state, i.e. is not in the state's ASCII self-loop mask.
+     */
+    private int skipSelfLoop(int j, int end, int state) {
+        long low = def.selfLoopLow[state];
+        long high = def.selfLoopHigh[state];
+        while (j < end) {
+            char c = chunk[chunkOff + (j - chunkStart)];
+            if (c < 64) {
+                if ((low & (1L << c)) == 0) break;
+            } else if (c < 128) {
+                if ((high & (1L << (c - 64))) == 0) break;
+            } else {
+                break;
+            }
+            j++;
+        }
+        return j;
+    }
+}
@@ -0,0 +1,124 @@
+package com.compiler.lexer;
+
+import java.util.Arrays;
+
+/**
+ * Interning table for identifier lexemes: gives each distinct name one canonical String and a dense
+ * int symbol id (0, 1, 2, ... in order of first occurrence).
+ *
+ * Open addressing with linear probing, keyed directly on a range of the source characters: a lookup
+ * hashes the range, probes, and compares the candidates char by char, so no String is allocated
+ * unless the name is new. Memory therefore grows with the number of distinct names, not with the
+ * number of occurrences. Not thread-safe.
+ */
+public class SymbolTable {
+    private int[] slots; // hash slot -> symbol id + 1, 0 when empty; capacity is a power of two
+    private int[] hashes; // symbol id -> hash of its name
+    private String[] names; // symbol id -> name
+    private int size;
+
+    public SymbolTable() {
+        this(64);
+    }
+
+    /**
+     * @param expectedSymbols number of distinct names to size the table for (it grows as needed)
+     */
+    public SymbolTable(int expectedSymbols) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSymbols) * 2 - 1) << 1; // load factor <= 1/2
+        this.slots = new int[capacity];
+        this.hashes = new int[Math.max(8, expectedSymbols)];
+        this.names = new String[hashes.length];
+    }
+
+    /**
+     * Returns the symbol id of s[start, end), adding the name if it is new.
+     */
+    public int intern(CharSequence s, int start, int end) {
+        return lookup(CharView.of(s), start, end, true);
+    }
+
+    /**
+     * Returns the symbol id of chars[start, end), adding the name if it is new.
+     */
+    public int intern(char[] chars, int start, int end) {
+        return lookup(CharView.of(chars, 0, chars.length), start, end, true);
+    }
+
+    /**
+     * Returns the symbol id of s[start, end), or -1 if the name was never interned.
+     */
+    public int find(CharSequence s, int start, int end) {
+        return lookup(CharView.of(s), start, end, false);
+    }
+
+    /**
+     * Returns the canonical String of a symbol id.
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the number of distinct names.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the symbol id of s[start, end), adding the name if add is set, or -1 if it is absent.
+     */
+    int lookup(CharView s, int start, int end, boolean add) {
+        int h = 0x811C9DC5 ^ (end - start);
+        for (int i = start; i < end; i++) {
+            h ^= s.charAt(i);
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        int mask = slots.length - 1;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) break;
+            int id = entry - 1;
+            if (hashes[id] == h && sameName(names[id], s, start, end)) return id;
+        }
+        if (!add) return -1;
+
+        String name = s.text(start, end);
+        if (size == names.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            names = Arrays.copyOf(names, size * 2);
+        }
+        int id = size++;
+        hashes[id] = h;
+        names[id] = name;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insert(id);
+        }
+        return id;
+    }
+
+    private static boolean sameName(String name, CharView s, int start, int end) {
+        int len = end - start;
+        if (name.length() != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != s.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private void insert(int id) {
+        int mask = slots.length - 1;
+        int slot = hashes[id] & mask;
+        while (slots[slot] != 0) slot = (slot + 1) & mask;
+        slots[slot] = id + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int id = 0; id < size; id++) insert(id);
+    }
+}
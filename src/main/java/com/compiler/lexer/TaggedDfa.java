@@ -0,0 +1,470 @@
+package com.compiler.lexer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.compiler.lexer.regex.RegexParser;
+
+/**
+ * TaggedDfa
+ * ---------
+ * Tagged DFA (after Laurikari) that extracts the capture groups of one token rule while it reads the
+ * token, so components such as the digits of 0x1F or the exponent of 12.5e-3 need no second regex.
+ *
+ * Each parenthesized group of the rule's regex (numbered by its opening parenthesis) that has a name
+ * gets two tags, its start and its end. The tagged NFA is determinized like a subset construction,
+ * except that a DFA state is an ordered list of NFA states (configurations) in match priority order,
+ * with one register row (one register per tag) per configuration. A transition carries register
+ * operations: for each target configuration, the row it copies from the source and the tags it sets
+ * to the current position. Matching thus costs one table step and a few register writes per character.
+ *
+ * Disambiguation is leftmost-greedy (as in java.util.regex): alternatives are tried from left to
+ * right, and loops prefer one more iteration. A group inside a loop reports its last iteration.
+ * The regex is read by RegexParser (see RegexParser.Visitor), with the same syntax and case folding
+ * as the rule's table. The Tokenizer runs the rules of a lexer together in one Automaton, a step
+ * behind each step of its table, so the groups are recorded during the table's pass over the token.
+ */
+public class TaggedDfa {
+    private static final int MAX_STATES = 10_000;
+
+    /**
+     * The rule's regex.
+     */
+    public final String regex;
+    /**
+     * True if letters match in either case.
+     */
+    public final boolean ignoreCase;
+    /**
+     * Names of the captured groups, in order of their opening parenthesis.
+     */
+    public final List<String> groupNames;
+
+    private final Node ast; // the regex with its groups
+    private volatile Automaton automaton; // compiled on the first call to match
+
+    /**
+     * Parses a rule's regex with its named groups.
+     *
+     * @param regex The regex (RegexParser syntax).
+     * @param ignoreCase True to match letters in either case.
+     * @param groupNames Names of the first groups of the regex, in order of their opening parenthesis.
+     * @throws IllegalArgumentException if the regex has fewer groups than names or more than 32 names
+     */
+    public TaggedDfa(String regex, boolean ignoreCase, List<String> groupNames) {
+        if (groupNames.size() > 32) throw new IllegalArgumentException("At most 32 capture groups are supported: " + regex);
+        this.regex = regex;
+        this.ignoreCase = ignoreCase;
+        this.groupNames = Collections.unmodifiableList(new ArrayList<>(groupNames));
+        int[] groups = { 0 };
+        this.ast = new RegexParser().parse(regex, ignoreCase, new RegexParser.Visitor<Node>() {
+            @Override public Node chars(char[] chars) { return new Node(Kind.CHAR, chars, List.of()); }
+            @Override public Node concat(Node left, Node right) { return new Node(Kind.CONCAT, null, List.of(left, right)); }
+            @Override public Node union(Node left, Node right) { return new Node(Kind.UNION, null, List.of(left, right)); }
+            @Override public Node star(Node operand) { return new Node(Kind.STAR, null, List.of(operand)); }
+            @Override public Node plus(Node operand) { return new Node(Kind.PLUS, null, List.of(operand)); }
+            @Override public Node optional(Node operand) { return new Node(Kind.OPTIONAL, null, List.of(operand)); }
+
+            @Override
+            public Node repeat(Node operand, int min, int max) {
+                Node repeat = new Node(Kind.REPEAT, null, List.of(operand));
+                repeat.min = min;
+                repeat.max = max;
+                return repeat;
+            }
+
+            @Override
+            public Node group(Node body, int index) {
+                Node group = new Node(Kind.GROUP, null, List.of(body));
+                group.group = index;
+                groups[0] = Math.max(groups[0], index + 1);
+                return group;
+            }
+        });
+        if (groups[0] < groupNames.size()) {
+            throw new IllegalArgumentException("Regex " + regex + " has " + groups[0] + " groups but " + groupNames.size() + " names");
+        }
+    }
+
+    /**
+     * Returns the index of a named group, or -1.
+     */
+    public int groupIndex(String name) {
+        return groupNames.indexOf(name);
+    }
+
+    /**
+     * Matches the whole range s[start, end) and returns the group boundaries.
+     *
+     * @return For each group g, its start at 2g and its end at 2g + 1 (offsets in s, -1 if the group
+     * did not take part in the match), or null if the range does not match the regex.
+     * @throws IllegalArgumentException if the tagged DFA is too large to build
+     */
+    public int[] match(CharSequence s, int start, int end) {
+        Automaton a = automaton;
+        if (a == null) automaton = a = new Automaton(List.of(this));
+        int[] current = a.newRegisters();
+        int[] following = a.newRegisters();
+        a.start(current, start);
+        int state = 0;
+        for (int p = start; p < end && state != -1; p++) {
+            state = a.step(state, s.charAt(p), current, following, p + 1);
+            int[] swap = current;
+            current = following;
+            following = swap;
+        }
+        int slot = state == -1 ? -1 : a.acceptSlot(state, 0);
+        return slot == -1 ? null : Arrays.copyOfRange(current, slot * a.width, slot * a.width + a.tagCount(0));
+    }
+
+    /**
+     * Tagged DFA of one or more rules, matched together: each rule keeps its own tags (numbered from 0)
+     * in the register rows of its configurations, and each state records, per rule, which configuration
+     * accepts. Registers are int arrays of newRegisters() entries, owned by the caller, so that stepping
+     * allocates nothing.
+     */
+    static final class Automaton {
+        final int width; // registers per configuration: tags of the rule with the most groups
+
+        private final int[] tagCounts; // rule -> two per group: start tag 2g, end tag 2g + 1
+        private final int slots; // maximum number of configurations in a state
+        private final int[] columnOf; // char -> column, or -1 if no transition uses the char
+        private final long[] startTags; // slot of the start state -> tags set at the start position
+        private final int[][] next; // [state][column] -> next state or -1
+        private final int[][][] copyFrom; // [state][column][target slot] -> source slot
+        private final long[][][] setTags; // [state][column][target slot] -> tags set to the position after the char
+        private final int[][] acceptSlot; // [state][rule] -> slot of the highest-priority configuration accepting the rule, or -1
+
+        /**
+         * Compiles the rules into one tagged DFA; rule r of the automaton is rules.get(r).
+         * @throws IllegalArgumentException if the DFA is too large to build
+         */
+        Automaton(List<TaggedDfa> rules) {
+            this.tagCounts = new int[rules.size()];
+            NState root = new NState();
+            int maxTags = 0;
+            for (int r = 0; r < rules.size(); r++) {
+                tagCounts[r] = 2 * rules.get(r).groupNames.size();
+                maxTags = Math.max(maxTags, tagCounts[r]);
+                Fragment nfa = build(rules.get(r).ast, tagCounts[r] / 2);
+                nfa.end.accept = r;
+                root.edges.add(new NEdge(null, -1, nfa.start));
+            }
+            this.width = maxTags;
+
+            // Columns: one per character that labels a transition
+            TreeSet<Character> chars = new TreeSet<>();
+            collectChars(root, chars, new HashSet<>());
+            int maxChar = chars.isEmpty() ? 0 : chars.last();
+            this.columnOf = new int[maxChar + 1];
+            Arrays.fill(columnOf, -1);
+            List<Character> columns = new ArrayList<>(chars);
+            for (int c = 0; c < columns.size(); c++) columnOf[columns.get(c)] = c;
+
+            // Determinize over ordered configuration lists
+            List<List<NState>> states = new ArrayList<>();
+            Map<List<NState>, Integer> ids = new HashMap<>();
+            List<int[]> nextRows = new ArrayList<>();
+            List<int[][]> copyRows = new ArrayList<>();
+            List<long[][]> setRows = new ArrayList<>();
+            List<NState> start = new ArrayList<>();
+            List<Long> startMasks = new ArrayList<>();
+            closure(root, 0L, start, startMasks, new HashSet<>());
+            this.startTags = toLongArray(startMasks);
+            ids.put(start, 0);
+            states.add(start);
+            int maxSlots = start.size();
+            Deque<Integer> work = new ArrayDeque<>();
+            work.push(0);
+            while (!work.isEmpty()) {
+                int id = work.pop();
+                List<NState> configs = states.get(id);
+                int[] row = new int[columns.size()];
+                int[][] copies = new int[columns.size()][];
+                long[][] sets = new long[columns.size()][];
+                for (int c = 0; c < columns.size(); c++) {
+                    char ch = columns.get(c);
+                    List<NState> targets = new ArrayList<>();
+                    List<Long> masks = new ArrayList<>();
+                    List<Integer> sources = new ArrayList<>();
+                    Set<NState> visited = new HashSet<>();
+                    for (int slot = 0; slot < configs.size(); slot++) {
+                        for (NEdge e : configs.get(slot).edges) {
+                            if (e.chars == null || Arrays.binarySearch(e.chars, ch) < 0) continue;
+                            int before = targets.size();
+                            closure(e.to, 0L, targets, masks, visited);
+                            for (int k = before; k < targets.size(); k++) sources.add(slot);
+                        }
+                    }
+                    if (targets.isEmpty()) {
+                        row[c] = -1;
+                        continue;
+                    }
+                    Integer target = ids.get(targets);
+                    if (target == null) {
+                        target = states.size();
+                        if (target >= MAX_STATES) throw new IllegalArgumentException("Tagged DFA of " + describe(rules) + " exceeds " + MAX_STATES + " states");
+                        ids.put(targets, target);
+                        states.add(targets);
+                        maxSlots = Math.max(maxSlots, targets.size());
+                        work.push(target);
+                    }
+                    row[c] = target;
+                    copies[c] = sources.stream().mapToInt(Integer::intValue).toArray();
+                    sets[c] = toLongArray(masks);
+                }
+                while (nextRows.size() <= id) {
+                    nextRows.add(null);
+                    copyRows.add(null);
+                    setRows.add(null);
+                }
+                nextRows.set(id, row);
+                copyRows.set(id, copies);
+                setRows.set(id, sets);
+            }
+            this.slots = maxSlots;
+            this.next = nextRows.toArray(new int[0][]);
+            this.copyFrom = copyRows.toArray(new int[0][][]);
+            this.setTags = setRows.toArray(new long[0][][]);
+            this.acceptSlot = new int[states.size()][rules.size()];
+            for (int s = 0; s < states.size(); s++) {
+                Arrays.fill(acceptSlot[s], -1);
+                List<NState> configs = states.get(s);
+                for (int slot = configs.size() - 1; slot >= 0; slot--) {
+                    if (configs.get(slot).accept != -1) acceptSlot[s][configs.get(slot).accept] = slot;
+                }
+            }
+        }
+
+        /**
+         * Returns the number of registers that rule r uses: its start and end tags, 2g and 2g + 1 for group g.
+         */
+        int tagCount(int r) {
+            return tagCounts[r];
+        }
+
+        /**
+         * Returns a register array for this automaton, to pass to start and step.
+         */
+        int[] newRegisters() {
+            return new int[slots * width];
+        }
+
+        /**
+         * Resets the registers for a match starting at the given position, in state 0.
+         */
+        void start(int[] registers, int position) {
+            Arrays.fill(registers, -1);
+            for (int slot = 0; slot < startTags.length; slot++) setTags(registers, slot, startTags[slot], position);
+        }
+
+        /**
+         * Reads c in the given state: fills to from the registers in from, with the tags of the
+         * transition set to position (the offset after c).
+         * @return the next state, or -1 if no rule continues with c (to is then unchanged)
+         */
+        int step(int state, char c, int[] from, int[] to, int position) {
+            int column = c < columnOf.length ? columnOf[c] : -1;
+            if (column == -1) return -1;
+            int target = next[state][column];
+            if (target == -1) return -1;
+            int[] sources = copyFrom[state][column];
+            long[] sets = setTags[state][column];
+            for (int slot = 0; slot < sources.length; slot++) {
+                System.arraycopy(from, sources[slot] * width, to, slot * width, width);
+                setTags(to, slot, sets[slot], position);
+            }
+            return target;
+        }
+
+        /**
+         * Returns the configuration of the state that accepts rule r, whose registers are at
+         * [slot * width, slot * width + tagCount(r)), or -1 if the state does not accept r.
+         */
+        int acceptSlot(int state, int r) {
+            return acceptSlot[state][r];
+        }
+
+        private void setTags(int[] registers, int slot, long tags, int position) {
+            while (tags != 0) {
+                registers[slot * width + Long.numberOfTrailingZeros(tags)] = position;
+                tags &= tags - 1;
+            }
+        }
+
+        private static String describe(List<TaggedDfa> rules) {
+            StringBuilder sb = new StringBuilder();
+            for (TaggedDfa rule : rules) sb.append(sb.length() == 0 ? "" : ", ").append(rule.regex);
+            return sb.toString();
+        }
+    }
+
+    private static long[] toLongArray(List<Long> values) {
+        long[] result = new long[values.size()];
+        for (int i = 0; i < result.length; i++) result[i] = values.get(i);
+        return result;
+    }
+
+    // ---------------------------------------------------------------- tagged NFA
+
+    private static final class NState {
+        final List<NEdge> edges = new ArrayList<>();
+        int accept = -1; // rule accepted in this state, or -1
+    }
+
+    /**
+     * A character edge (chars sorted) or, when chars is null, an epsilon edge that may set a tag.
+     */
+    private static final class NEdge {
+        final char[] chars;
+        final int tag; // -1 for none
+        final NState to;
+
+        NEdge(char[] chars, int tag, NState to) {
+            this.chars = chars;
+            this.tag = tag;
+            this.to = to;
+        }
+    }
+
+    private record Fragment(NState start, NState end) {}
+
+    /**
+     * Appends, in priority order, the states that read a character or accept and are reachable from
+     * s by epsilon edges, with the tags set on the way. The first path to reach a state wins.
+     */
+    private static void closure(NState s, long tags, List<NState> states, List<Long> masks, Set<NState> visited) {
+        if (!visited.add(s)) return;
+        boolean reads = false;
+        for (NEdge e : s.edges) reads |= e.chars != null;
+        if (reads || s.accept != -1) {
+            states.add(s);
+            masks.add(tags);
+        }
+        for (NEdge e : s.edges) {
+            if (e.chars == null) closure(e.to, e.tag >= 0 ? tags | (1L << e.tag) : tags, states, masks, visited);
+        }
+    }
+
+    private static void collectChars(NState s, Set<Character> chars, Set<NState> seen) {
+        Deque<NState> stack = new ArrayDeque<>();
+        seen.add(s);
+        stack.push(s);
+        while (!stack.isEmpty()) {
+            for (NEdge e : stack.pop().edges) {
+                if (e.chars != null) for (char c : e.chars) chars.add(c);
+                if (seen.add(e.to)) stack.push(e.to);
+            }
+        }
+    }
+
+    /**
+     * Builds the tagged NFA fragment of a node; the first named groups get tags.
+     */
+    private static Fragment build(Node n, int namedGroups) {
+        NState start = new NState();
+        NState end = new NState();
+        switch (n.kind) {
+            case CHAR -> start.edges.add(new NEdge(n.chars, -1, end));
+            case CONCAT -> {
+                NState at = start;
+                for (Node child : n.children) {
+                    Fragment f = build(child, namedGroups);
+                    at.edges.add(new NEdge(null, -1, f.start));
+                    at = f.end;
+                }
+                at.edges.add(new NEdge(null, -1, end));
+            }
+            case UNION -> {
+                for (Node child : n.children) {
+                    Fragment f = build(child, namedGroups);
+                    start.edges.add(new NEdge(null, -1, f.start));
+                    f.end.edges.add(new NEdge(null, -1, end));
+                }
+            }
+            case STAR -> {
+                Fragment f = build(n.children.get(0), namedGroups);
+                start.edges.add(new NEdge(null, -1, f.start)); // greedy: iterate first
+                start.edges.add(new NEdge(null, -1, end));
+                f.end.edges.add(new NEdge(null, -1, start));
+            }
+            case PLUS -> {
+                Fragment f = build(n.children.get(0), namedGroups);
+                start.edges.add(new NEdge(null, -1, f.start));
+                f.end.edges.add(new NEdge(null, -1, f.start));
+                f.end.edges.add(new NEdge(null, -1, end));
+            }
+            case OPTIONAL -> {
+                Fragment f = build(n.children.get(0), namedGroups);
+                start.edges.add(new NEdge(null, -1, f.start));
+                start.edges.add(new NEdge(null, -1, end));
+                f.end.edges.add(new NEdge(null, -1, end));
+            }
+            case REPEAT -> {
+                Node child = n.children.get(0);
+                List<Node> parts = new ArrayList<>();
+                for (int i = 0; i < n.min; i++) parts.add(child);
+                if (n.max == -1) parts.add(new Node(Kind.STAR, null, List.of(child)));
+                for (int i = n.min; i < n.max; i++) parts.add(new Node(Kind.OPTIONAL, null, List.of(child)));
+                if (parts.isEmpty()) {
+                    start.edges.add(new NEdge(null, -1, end)); // {0} and {0,0} match the empty string
+                } else {
+                    Fragment f = build(new Node(Kind.CONCAT, null, parts), namedGroups);
+                    start.edges.add(new NEdge(null, -1, f.start));
+                    f.end.edges.add(new NEdge(null, -1, end));
+                }
+            }
+            case GROUP -> {
+                Fragment f = build(n.children.get(0), namedGroups);
+                boolean tagged = n.group < namedGroups;
+                start.edges.add(new NEdge(null, tagged ? 2 * n.group : -1, f.start));
+                f.end.edges.add(new NEdge(null, tagged ? 2 * n.group + 1 : -1, end));
+            }
+        }
+        return new Fragment(start, end);
+    }
+
+    // ---------------------------------------------------------------- regex syntax tree
+
+    private enum Kind { CHAR, CONCAT, UNION, STAR, PLUS, OPTIONAL, REPEAT, GROUP }
+
+    /**
+     * Regex syntax tree built from RegexParser's walk; unlike RegexParser's simplified AST it keeps the groups.
+     */
+    private static final class Node {
+        final Kind kind;
+        final char[] chars; // CHAR only
+        final List<Node> children;
+        int group = -1; // GROUP only
+        int min;
+        int max; // REPEAT only, -1 for unbounded
+
+        Node(Kind kind, char[] chars, List<Node> children) {
+            this.kind = kind;
+            this.chars = chars;
+            this.children = children;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaggedDfa other = (TaggedDfa) o;
+        return regex.equals(other.regex) && ignoreCase == other.ignoreCase && groupNames.equals(other.groupNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * regex.hashCode() + Boolean.hashCode(ignoreCase)) + groupNames.hashCode();
+    }
+}
@@ -5,18 +5,81 @@ public class Token {
 	public final String lexeme;
 	public final int start; // optional: start position
 	public final int end;   // optional: end position (exclusive)
+	public final int symbol; // symbol id of the lexeme in the tokenizer's SymbolTable, or -1
+	private final int[] groups; // capture group g spans [groups[2g], groups[2g + 1]) (-1 if unmatched), or null
 
 	public Token(String type, String lexeme, int start, int end) {
+		this(type, lexeme, start, end, -1);
+	}
+
+	public Token(String type, String lexeme, int start, int end, int symbol) {
+		this(type, lexeme, start, end, symbol, null);
+	}
+
+	/**
+	 * @param groups capture group boundaries, start and end of each group in turn (-1 if unmatched), or null;
+	 * the token keeps the array, so the caller must not change it afterwards
+	 */
+	public Token(String type, String lexeme, int start, int end, int symbol, int[] groups) {
 		this.type = type;
 		this.lexeme = lexeme;
 		this.start = start;
 		this.end = end;
+		this.symbol = symbol;
+		this.groups = groups;
 	}
 
 	public Token(String type, String lexeme) {
 		this(type, lexeme, -1, -1);
 	}
 
+	/**
+	 * Returns the number of capture groups of this token's rule (see TaggedDfa), 0 if it has none.
+	 */
+	public int groupCount() {
+		return groups == null ? 0 : groups.length / 2;
+	}
+
+	/**
+	 * Returns the input position where capture group g starts, or -1 if the rule has no such group
+	 * or the group did not take part in the match.
+	 */
+	public int groupStart(int g) {
+		return g < 0 || g >= groupCount() ? -1 : groups[2 * g];
+	}
+
+	/**
+	 * Returns the input position where capture group g ends (exclusive), or -1 if the rule has no
+	 * such group or the group did not take part in the match.
+	 */
+	public int groupEnd(int g) {
+		return g < 0 || g >= groupCount() ? -1 : groups[2 * g + 1];
+	}
+
+	/**
+	 * Returns the text of capture group g of this token's rule, or null if the rule has no such
+	 * group or the group did not take part in the match.
+	 */
+	public String group(int g) {
+		int groupStart = groupStart(g);
+		if (groupStart < 0) return null;
+		return lexeme.substring(groupStart - start, groupEnd(g) - start);
+	}
+
+	/**
+	 * Returns the 1-based line of this token's start, resolved through the input's line index.
+	 */
+	public int line(LineIndex lines) {
+		return lines.line(start);
+	}
+
+	/**
+	 * Returns the 1-based column of this token's start, resolved through the input's line index.
+	 */
+	public int column(LineIndex lines) {
+		return lines.column(start);
+	}
+
 	@Override
 	public String toString() {
 		return type + "(" + lexeme + ")";
@@ -0,0 +1,88 @@
+package com.compiler.lexer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Columnar heap TokenStore filled by Tokenizer.tokenizeToBuffer: one array per field (type, start,
+ * end, value) instead of one Token object per token. Lexemes are not stored; they are read from the
+ * input on demand, so the input must not change while the buffer is in use.
+ *
+ * The value column holds the decoded value of tokens whose rule declares a value decoder
+ * (see ValueDecoder): a long for int and hex literals, the raw bits of a double for float literals,
+ * and 0 for other tokens. Literals too large for their decoder are flagged (see outOfRange).
+ */
+public class TokenBuffer implements TokenSink, TokenStore {
+    private final CharSequence source;
+    private String[] types = new String[16];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private long[] values = new long[16];
+    private final BitSet outOfRange = new BitSet();
+    private int size;
+
+    /**
+     * @param source the tokenized input, which token offsets refer to
+     */
+    public TokenBuffer(CharSequence source) {
+        this.source = source;
+    }
+
+    @Override
+    public void add(String type, int start, int end, long value, boolean outOfRange) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        types[size] = type;
+        starts[size] = start;
+        ends[size] = end;
+        values[size] = value;
+        if (outOfRange) this.outOfRange.set(size);
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String type(int i) {
+        return types[checkIndex(i)];
+    }
+
+    @Override
+    public int start(int i) {
+        return starts[checkIndex(i)];
+    }
+
+    @Override
+    public int end(int i) {
+        return ends[checkIndex(i)];
+    }
+
+    @Override
+    public long longValue(int i) {
+        return values[checkIndex(i)];
+    }
+
+    @Override
+    public boolean outOfRange(int i) {
+        return outOfRange.get(checkIndex(i));
+    }
+
+    @Override
+    public String lexeme(int i) {
+        checkIndex(i);
+        return source.subSequence(starts[i], ends[i]).toString();
+    }
+
+    private int checkIndex(int i) {
+        return Objects.checkIndex(i, size);
+    }
+}
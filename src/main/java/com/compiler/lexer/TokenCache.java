@@ -0,0 +1,386 @@
+package com.compiler.lexer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of token streams, so that unchanged files are not lexed again on the next build.
+ * Entries are files in a cache directory, named after the SHA-256 of the input and of the lexer
+ * configuration (the LexerDefinition JSON plus the tokenizer options), so that an entry can only be
+ * reused with the same input and the same lexer.
+ *
+ * An entry stores the TokenBuffer columns, not the lexemes: a table of token type names, then per
+ * token the type index (shifted left, with the out-of-range flag in bit 0), the gap since the previous
+ * token's end, the length and the zigzag-encoded value, all as varints. A hit memory-maps the entry and
+ * returns a TokenStore that decodes the records from the mapping on demand, so the token columns are
+ * never copied to the heap; the entry is only scanned once to check it and to index every 64th record.
+ * The directory is kept under a size limit by evicting the least recently used entries (file
+ * modification time is the access time); the size of the entries is counted when the cache is created
+ * and kept up to date, so the directory is only listed when the limit is exceeded.
+ */
+public class TokenCache {
+    private static final int MAGIC = 0x544F4B43; // "TOKC"
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".tokens";
+
+    private final Path directory;
+    private final long maxBytes;
+    private long totalBytes; // size of the entries in the directory
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * @param directory cache directory (created if missing)
+     * @param maxBytes maximum total size of the entries; least recently used entries are evicted above it
+     * @throws IOException if the directory cannot be created
+     */
+    public TokenCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        for (Path entry : entries()) totalBytes += Files.size(entry);
+    }
+
+    /**
+     * Reads a UTF-8 file and returns its tokens, from the cache if the file and the lexer are unchanged.
+     */
+    public TokenStore tokenize(Tokenizer tokenizer, Path file) throws IOException {
+        return tokenize(tokenizer, Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the tokens of the input as Tokenizer.tokenizeToBuffer would, from the cache when an
+     * entry exists for this input and lexer, otherwise by lexing and storing a new entry.
+     * A corrupt entry is treated as missing. A store read from the cache decodes its records from a
+     * memory mapping of the entry as they are accessed; it is not thread-safe.
+     */
+    public synchronized TokenStore tokenize(Tokenizer tokenizer, CharSequence input) throws IOException {
+        Path entry = directory.resolve(contentHash(input) + "-" + configurationHash(tokenizer) + SUFFIX);
+        if (Files.isRegularFile(entry)) {
+            TokenStore cached = MappedEntry.open(entry, input);
+            if (cached != null) {
+                hits++;
+                Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+                return cached;
+            }
+            long size = Files.size(entry);
+            if (Files.deleteIfExists(entry)) totalBytes -= size;
+        }
+        misses++;
+        TokenBuffer buffer = tokenizer.tokenizeToBuffer(input);
+        totalBytes += write(entry, buffer);
+        if (totalBytes > maxBytes) evict(entry);
+        return buffer;
+    }
+
+    /**
+     * Returns the number of lookups served from the cache.
+     */
+    public int hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that had to lex the input.
+     */
+    public int misses() {
+        return misses;
+    }
+
+    private String configurationHash(Tokenizer tokenizer) {
+        String definition = tokenizer.definition().fingerprint();
+        return hex(sha256((definition + ";" + tokenizer.configurationKey()).getBytes(StandardCharsets.UTF_8)), 16);
+    }
+
+    private static String contentHash(CharSequence input) {
+        MessageDigest digest = newDigest();
+        byte[] chunk = new byte[8192];
+        int k = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            chunk[k++] = (byte) (c >>> 8);
+            chunk[k++] = (byte) c;
+            if (k == chunk.length) {
+                digest.update(chunk, 0, k);
+                k = 0;
+            }
+        }
+        digest.update(chunk, 0, k);
+        return hex(digest.digest(), 16);
+    }
+
+    /**
+     * Writes an entry and returns its size in bytes.
+     */
+    private long write(Path entry, TokenBuffer buffer) throws IOException {
+        Map<String, Integer> typeIndex = new HashMap<>();
+        List<String> types = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(buffer.size() * 4 + 16);
+        writeVarint(body, buffer.size());
+        int previousEnd = 0;
+        for (int i = 0; i < buffer.size(); i++) {
+            Integer type = typeIndex.get(buffer.type(i));
+            if (type == null) {
+                type = types.size();
+                typeIndex.put(buffer.type(i), type);
+                types.add(buffer.type(i));
+            }
+            writeVarint(body, ((long) type << 1) | (buffer.outOfRange(i) ? 1 : 0));
+            writeVarint(body, buffer.start(i) - previousEnd);
+            writeVarint(body, buffer.end(i) - buffer.start(i));
+            long value = buffer.longValue(i);
+            writeVarint(body, (value << 1) ^ (value >> 63)); // zigzag
+            previousEnd = buffer.end(i);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + 64);
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION);
+        out.write(header.array());
+        writeVarint(out, types.size());
+        for (String type : types) {
+            byte[] name = type.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, name.length);
+            out.write(name);
+        }
+        body.writeTo(out);
+
+        // Write to a temporary file and move it in place, so readers never see a partial entry
+        Path temp = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            Files.write(temp, out.toByteArray());
+            try {
+                Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return out.size();
+    }
+
+    /**
+     * Deletes the least recently used entries, except the one just written, until the directory fits
+     * in maxBytes, and recounts the size of the entries that remain.
+     */
+    private void evict(Path written) throws IOException {
+        List<Path> entries = entries();
+        Map<Path, FileTime> used = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        long total = 0;
+        for (Path p : entries) {
+            used.put(p, Files.getLastModifiedTime(p));
+            sizes.put(p, Files.size(p));
+            total += sizes.get(p);
+        }
+        entries.sort((a, b) -> used.get(a).compareTo(used.get(b)));
+        for (int i = 0; i < entries.size() && total > maxBytes; i++) {
+            if (entries.get(i).equals(written)) continue;
+            if (Files.deleteIfExists(entries.get(i))) total -= sizes.get(entries.get(i));
+        }
+        totalBytes = total;
+    }
+
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).toList());
+        }
+    }
+
+    /**
+     * TokenStore over a memory-mapped entry. Records are decoded on demand by a cursor that moves
+     * forward from the last record read, or jumps to the nearest indexed record before the one asked
+     * for, so a sequential scan decodes each record once and a random access at most 64.
+     */
+    private static final class MappedEntry implements TokenStore {
+        private static final int INDEX_SHIFT = 6; // every 64th record is indexed
+
+        private final ByteBuffer in;
+        private final CharSequence source;
+        private final String[] types;
+        private final int size;
+        private final int[] indexedPosition; // k -> byte position of record k << INDEX_SHIFT
+        private final int[] indexedPreviousEnd; // k -> end of the token before that record
+
+        // The record last decoded, and the byte position of the one after it
+        private int index = -1;
+        private int type;
+        private int start;
+        private int end;
+        private long value;
+        private boolean outOfRange;
+        private int nextPosition;
+
+        private MappedEntry(ByteBuffer in, CharSequence source, String[] types, int size, int[] indexedPosition, int[] indexedPreviousEnd) {
+            this.in = in;
+            this.source = source;
+            this.types = types;
+            this.size = size;
+            this.indexedPosition = indexedPosition;
+            this.indexedPreviousEnd = indexedPreviousEnd;
+        }
+
+        /**
+         * Maps an entry and checks all its records, or returns null if it is corrupt.
+         */
+        static MappedEntry open(Path entry, CharSequence input) throws IOException {
+            try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+                MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+                long typeCount = readVarint(in);
+                if (typeCount < 0 || typeCount > in.remaining()) return null; // a name takes at least one byte
+                String[] types = new String[(int) typeCount];
+                for (int t = 0; t < types.length; t++) {
+                    long nameLength = readVarint(in);
+                    if (nameLength < 0 || nameLength > in.remaining()) return null;
+                    byte[] name = new byte[(int) nameLength];
+                    in.get(name);
+                    types[t] = new String(name, StandardCharsets.UTF_8).intern();
+                }
+                long count = readVarint(in);
+                if (count < 0 || count > in.remaining()) return null; // a record takes at least one byte
+                int size = (int) count;
+                int[] indexedPosition = new int[(size >> INDEX_SHIFT) + 1];
+                int[] indexedPreviousEnd = new int[indexedPosition.length];
+                long previousEnd = 0;
+                for (int i = 0; i < size; i++) {
+                    if ((i & ((1 << INDEX_SHIFT) - 1)) == 0) {
+                        indexedPosition[i >> INDEX_SHIFT] = in.position();
+                        indexedPreviousEnd[i >> INDEX_SHIFT] = (int) previousEnd;
+                    }
+                    long type = readVarint(in) >>> 1;
+                    long gap = readVarint(in);
+                    long length = readVarint(in);
+                    readVarint(in);
+                    long end = previousEnd + gap + length;
+                    if (type >= types.length || gap < 0 || length < 0 || end > input.length()) return null;
+                    previousEnd = end;
+                }
+                return in.hasRemaining() ? null : new MappedEntry(in, input, types, size, indexedPosition, indexedPreviousEnd);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String type(int i) {
+            seek(i);
+            return types[type];
+        }
+
+        @Override
+        public int start(int i) {
+            seek(i);
+            return start;
+        }
+
+        @Override
+        public int end(int i) {
+            seek(i);
+            return end;
+        }
+
+        @Override
+        public long longValue(int i) {
+            seek(i);
+            return value;
+        }
+
+        @Override
+        public boolean outOfRange(int i) {
+            seek(i);
+            return outOfRange;
+        }
+
+        @Override
+        public String lexeme(int i) {
+            seek(i);
+            return source.subSequence(start, end).toString();
+        }
+
+        /**
+         * Decodes record i into the cursor fields.
+         */
+        private void seek(int i) {
+            Objects.checkIndex(i, size);
+            if (i == index) return;
+            if (index == -1 || i < index || i - index > (1 << INDEX_SHIFT)) {
+                int k = i >> INDEX_SHIFT;
+                index = (k << INDEX_SHIFT) - 1;
+                nextPosition = indexedPosition[k];
+                end = indexedPreviousEnd[k];
+            }
+            in.position(nextPosition);
+            while (index < i) {
+                long typeAndFlag = readVarint(in);
+                type = (int) (typeAndFlag >>> 1);
+                outOfRange = (typeAndFlag & 1) != 0;
+                start = end + (int) readVarint(in);
+                end = start + (int) readVarint(in);
+                long zigzag = readVarint(in);
+                value = (zigzag >>> 1) ^ -(zigzag & 1);
+                index++;
+            }
+            nextPosition = in.position();
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        return newDigest().digest(bytes);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes, int length) {
+        StringBuilder sb = new StringBuilder(2 * length);
+        for (int i = 0; i < length; i++) sb.append(String.format("%02x", bytes[i] & 0xFF));
+        return sb.toString();
+    }
+}
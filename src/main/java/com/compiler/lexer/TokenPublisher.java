@@ -0,0 +1,124 @@
+package com.compiler.lexer;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flow.Publisher of the tokens of one input, for asynchronous pipelines.
+ * Lexing follows downstream demand: each request(n) scans at most n more tokens (plus one token of
+ * look-ahead used to signal completion), on the publisher's executor, and scanning resumes on the
+ * next request. A slow subscriber therefore holds back the lexer instead of accumulating tokens.
+ *
+ * The publisher is cold: every subscriber gets all tokens of the input from the start, through its
+ * own Tokenizer.iterator. Subscribers of a Tokenizer built on a HybridLexer must not run concurrently,
+ * since the lazy engine is not thread-safe.
+ */
+public class TokenPublisher implements Flow.Publisher<Token> {
+    private final Tokenizer tokenizer;
+    private final CharSequence input;
+    private final Executor executor;
+
+    /**
+     * Publishes on the common fork-join pool.
+     */
+    public TokenPublisher(Tokenizer tokenizer, CharSequence input) {
+        this(tokenizer, input, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param tokenizer the tokenizer (its options are read when a subscriber subscribes)
+     * @param input the input; must not change while it is being published
+     * @param executor runs the lexing and the calls to the subscribers
+     */
+    public TokenPublisher(Tokenizer tokenizer, CharSequence input, Executor executor) {
+        this.tokenizer = tokenizer;
+        this.input = input;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Token> subscriber) {
+        TokenSubscription subscription = new TokenSubscription(subscriber, tokenizer.iterator(input));
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Delivers tokens to one subscriber. Signals are serialized by a work counter: at most one
+     * drain runs at a time, and requests made meanwhile (also from inside onNext) are picked up
+     * by the running drain.
+     */
+    private final class TokenSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Token> subscriber;
+        private final Iterator<Token> tokens;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean done; // completed, failed or cancelled
+        private volatile Throwable invalidRequest; // signalled by the next drain
+
+        TokenSubscription(Flow.Subscriber<? super Token> subscriber, Iterator<Token> tokens) {
+            this.subscriber = subscriber;
+            this.tokens = tokens;
+        }
+
+        @Override
+        public void request(long n) {
+            if (done) return;
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request must be positive: " + n);
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() != 0) return;
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                fail(e);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                long requested = demand.get();
+                long emitted = 0;
+                if (invalidRequest != null) fail(invalidRequest);
+                try {
+                    while (emitted != requested && !done && tokens.hasNext()) {
+                        subscriber.onNext(tokens.next());
+                        emitted++;
+                    }
+                    if (!done && !tokens.hasNext()) {
+                        done = true;
+                        subscriber.onComplete();
+                    }
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+                if (done) return;
+                if (emitted != 0 && requested != Long.MAX_VALUE) demand.addAndGet(-emitted);
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) return;
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (done) return;
+            done = true;
+            subscriber.onError(error);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.compiler.lexer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single line of a token definition file: regex;TokenType[;option...]
+ * The regex may use the escapes \n, \r, \t and \\ for characters that cannot appear
+ * literally in a line-based file.
+ *
+ * Supported options:
+ * - skip: matches are consumed by the tokenizer without producing a Token (whitespace, comments).
+ * - keywords=TYPE:kw1,kw2,...: matches equal to one of the keywords get token type TYPE instead
+ *   (see KeywordTable). May be repeated with different types on the same rule.
+ * - ignorecase: letters match in either case. The regex is case-folded by widening its character
+ *   classes, so the rule has as many NFA states as its lowercase form; the alphabet passed to
+ *   LexerBuilder must still contain both cases of the letters to be matched.
+ * - value=int|hex|float: the numeric value of each match is decoded while lexing into a TokenBuffer
+ *   (see ValueDecoder and Tokenizer.tokenizeToBuffer).
+ * - groups=name1,name2,...: names the first parenthesized groups of the regex (in order of their
+ *   opening parenthesis); their boundaries are recorded while lexing and read with Token.group (see TaggedDfa).
+ */
+public class TokenRule {
+    public final String regex;
+    public final String tokenTypeName;
+    public final int priority; // lower wins
+
+    /**
+     * True if matches of this rule are consumed without producing a Token.
+     */
+    public final boolean skip;
+
+    /**
+     * True if letters in the regex match in either case.
+     */
+    public final boolean ignoreCase;
+
+    /**
+     * Keywords recognized among the matches of this rule: keyword -> token type (unmodifiable).
+     */
+    public final Map<String, String> keywords;
+
+    /**
+     * Decoder of the numeric value of matches, or null.
+     */
+    public final ValueDecoder valueDecoder;
+
+    /**
+     * Names of the capture groups of the regex (unmodifiable), empty if matches are not split into groups.
+     */
+    public final List<String> groups;
+
+    public TokenRule(String regex, String tokenTypeName, int priority) {
+        this(regex, tokenTypeName, priority, false, false, Collections.emptyMap(), null, Collections.emptyList());
+    }
+
+    /**
+     * @param regex the rule's regex
+     * @param tokenTypeName type of the tokens it matches
+     * @param priority priority of the rule (lower wins)
+     * @param skip true if matches are consumed without producing a Token
+     * @param ignoreCase true if letters match in either case
+     * @param keywords keyword -> token type of the keywords recognized among the matches
+     * @param valueDecoder decoder of the numeric value of matches, or null
+     * @param groups names of the capture groups of the regex
+     */
+    public TokenRule(String regex, String tokenTypeName, int priority, boolean skip, boolean ignoreCase,
+            Map<String, String> keywords, ValueDecoder valueDecoder, List<String> groups) {
+        this.regex = regex;
+        this.tokenTypeName = tokenTypeName;
+        this.priority = priority;
+        this.skip = skip;
+        this.ignoreCase = ignoreCase;
+        this.keywords = Collections.unmodifiableMap(new LinkedHashMap<>(keywords));
+        this.valueDecoder = valueDecoder;
+        this.groups = List.copyOf(groups);
+    }
+
+    /**
+     * Parses a trimmed, non-comment definition line.
+     * @param line line in the format regex;TokenType[;option...]
+     * @param priority priority assigned to the rule (lower wins)
+     * @return the parsed rule, or null if the line has no token type
+     * @throws IllegalArgumentException if the line uses an unknown option
+     */
+    public static TokenRule parse(String line, int priority) {
+        String[] parts = line.split(";", 2);
+        if (parts.length != 2) return null;
+        String regex = unescape(parts[0].trim());
+        String[] fields = parts[1].split(";");
+        boolean skip = false;
+        boolean ignoreCase = false;
+        Map<String, String> keywords = new LinkedHashMap<>();
+        ValueDecoder valueDecoder = null;
+        List<String> groups = new ArrayList<>();
+        for (int i = 1; i < fields.length; i++) {
+            String option = fields[i].trim();
+            if (option.isEmpty()) continue;
+            if (option.equals("skip")) skip = true;
+            else if (option.equals("ignorecase")) ignoreCase = true;
+            else if (option.startsWith("keywords=")) parseKeywords(option.substring("keywords=".length()), line, keywords);
+            else if (option.startsWith("value=")) valueDecoder = ValueDecoder.of(option.substring("value=".length()).trim());
+            else if (option.startsWith("groups=")) {
+                for (String name : option.substring("groups=".length()).split(",")) {
+                    if (!name.trim().isEmpty()) groups.add(name.trim());
+                }
+            }
+            else throw new IllegalArgumentException("Unknown token rule option '" + option + "' in line: " + line);
+        }
+        return new TokenRule(regex, fields[0].trim(), priority, skip, ignoreCase, keywords, valueDecoder, groups);
+    }
+
+    /**
+     * Parses the value of a keywords option, TYPE:kw1,kw2,..., into keywords.
+     */
+    private static void parseKeywords(String value, String line, Map<String, String> keywords) {
+        int colon = value.indexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("Expected keywords=TYPE:kw1,kw2,... in line: " + line);
+        String type = value.substring(0, colon).trim();
+        for (String keyword : value.substring(colon + 1).split(",")) {
+            keyword = keyword.trim();
+            if (!keyword.isEmpty()) keywords.put(keyword, type);
+        }
+    }
+
+    /**
+     * Replaces the escapes \n, \r, \t and \\ with the characters they denote.
+     * Any other backslash is kept as is.
+     */
+    static String unescape(String regex) {
+        if (regex.indexOf('\\') == -1) return regex;
+        StringBuilder sb = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length()) {
+                char next = regex.charAt(i + 1);
+                switch (next) {
+                    case 'n' -> { sb.append('\n'); i++; continue; }
+                    case 'r' -> { sb.append('\r'); i++; continue; }
+                    case 't' -> { sb.append('\t'); i++; continue; }
+                    case '\\' -> { sb.append('\\'); i++; continue; }
+                    default -> { }
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(regex + ";" + tokenTypeName + (skip ? ";skip" : "") + (ignoreCase ? ";ignorecase" : ""));
+        Map<String, StringBuilder> byType = new LinkedHashMap<>();
+        keywords.forEach((keyword, type) -> {
+            StringBuilder list = byType.get(type);
+            if (list == null) byType.put(type, new StringBuilder(keyword));
+            else list.append(',').append(keyword);
+        });
+        byType.forEach((type, list) -> sb.append(";keywords=").append(type).append(':').append(list));
+        if (valueDecoder != null) sb.append(";value=").append(valueDecoder.id);
+        if (!groups.isEmpty()) sb.append(";groups=").append(String.join(",", groups));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package com.compiler.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unanchored multi-pattern search over a LexerDefinition.
+ * Finds every leftmost-longest, non-overlapping occurrence of any token rule in arbitrary text
+ * in a single left-to-right pass, instead of one scan per rule.
+ *
+ * The search works in three steps at each position:
+ * 1. Skip to the next possible match start, using String.indexOf when every rule shares a literal
+ *    prefix, or the start-character bitmap otherwise.
+ * 2. Run the unanchored table (implicit ".*" prefix) until it first accepts; this is the earliest
+ *    position where any match ends. If it never accepts, there are no more matches.
+ * 3. Run the anchored table from every candidate start before that position at once, keeping one
+ *    start per state (the earliest); the earliest start that accepts, at its last accepting
+ *    position, is the leftmost-longest match.
+ */
+public class TokenSearcher {
+    /**
+     * A single occurrence of a token rule in the searched text.
+     */
+    public static class Match {
+        public final String rule;
+        public final int start;
+        public final int end; // exclusive
+
+        public Match(String rule, int start, int end) {
+            this.rule = rule;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return rule + "[" + start + "," + end + ")";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Match m = (Match) o;
+            return start == m.start && end == m.end && (rule == null ? m.rule == null : rule.equals(m.rule));
+        }
+
+        @Override
+        public int hashCode() {
+            int r = rule == null ? 0 : rule.hashCode();
+            r = 31 * r + start;
+            r = 31 * r + end;
+            return r;
+        }
+    }
+
+    private final LexerDefinition def;
+    private final LexerDefinition searchDef;
+    private final String literalPrefix;
+
+    /**
+     * @param def anchored table, as built by LexerBuilder.buildLexerDefinitionFromFile
+     * @param searchDef unanchored table over the same rules and alphabet
+     */
+    public TokenSearcher(LexerDefinition def, LexerDefinition searchDef) {
+        this.def = def;
+        this.searchDef = searchDef;
+        this.literalPrefix = extractLiteralPrefix(def);
+    }
+
+    /**
+     * Returns the literal prefix shared by every rule ("" if there is none).
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * Find all non-overlapping occurrences of any rule in the input, left to right.
+     * The leftmost match wins, then the longest one from that start; ties go to the rule with the highest priority.
+     *
+     * Each character is stepped at most once per state of the anchored table, however many starts are
+     * live, so scanning for one match is linear in the characters it reads. Those can reach past the
+     * match that is emitted when a longer match was still possible and then failed (rules a and a*b on
+     * a run of a's without b read to the end of the run for every a): the characters after the emitted
+     * match are read again for the next one, as in any maximal-munch lexer.
+     */
+    public List<Match> findAll(CharSequence input) {
+        List<Match> out = new ArrayList<>();
+        int n = input.length();
+        int states = def.transitions.length;
+        // The live starts: one per anchored state, the earliest start that reached it (later ones have the same future)
+        int[] live = new int[states];
+        int[] startOf = new int[states];
+        int[] nextLive = new int[states];
+        int[] nextStartOf = new int[states];
+        Arrays.fill(startOf, -1);
+        Arrays.fill(nextStartOf, -1);
+        int pos = 0;
+        while (pos < n) {
+            pos = skipToCandidate(input, pos);
+            if (pos >= n) break;
+            int earliestEnd = earliestAcceptEnd(input, pos);
+            if (earliestEnd == -1) break; // no rule matches anywhere in the rest of the input
+
+            // Every match ends at or after earliestEnd, so the leftmost one starts before it
+            int count = 0;
+            int bestStart = -1;
+            int bestEnd = -1;
+            int bestState = -1;
+            for (int j = pos; j < n; j++) {
+                char c = input.charAt(j);
+                if (bestStart == -1 && j < earliestEnd && startOf[def.startState] == -1 && def.canStartToken(c)) {
+                    live[count++] = def.startState;
+                    startOf[def.startState] = j;
+                }
+                if (count == 0) {
+                    if (bestStart != -1 || j >= earliestEnd) break;
+                    continue;
+                }
+                int a = def.alphabetIndex(c);
+                int nextCount = 0;
+                for (int t = 0; t < count; t++) {
+                    int state = live[t];
+                    int start = startOf[state];
+                    startOf[state] = -1;
+                    int next = a == -1 ? -1 : def.transitions[state][a];
+                    if (next == -1 || !def.canReachAccept[next]) continue;
+                    if (bestStart != -1 && start > bestStart) continue;
+                    if (nextStartOf[next] == -1) {
+                        nextLive[nextCount++] = next;
+                        nextStartOf[next] = start;
+                    } else if (start < nextStartOf[next]) {
+                        nextStartOf[next] = start;
+                    }
+                }
+                count = 0;
+                for (int t = 0; t < nextCount; t++) {
+                    int state = nextLive[t];
+                    int start = nextStartOf[state];
+                    nextStartOf[state] = -1;
+                    if (def.isFinal[state] && (bestStart == -1 || start <= bestStart)) {
+                        bestStart = start;
+                        bestEnd = j + 1;
+                        bestState = state;
+                    }
+                    if (def.isTerminal[state]) continue;
+                    live[count++] = state;
+                    startOf[state] = start;
+                }
+            }
+            for (int t = 0; t < count; t++) startOf[live[t]] = -1;
+
+            if (bestStart != -1) {
+                out.add(new Match(def.tokenTypeNames[bestState], bestStart, bestEnd));
+                pos = bestEnd;
+            } else {
+                pos = earliestEnd; // only empty matches end here: no non-empty match starts before earliestEnd
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns the first position at or after pos where a match could start, or input.length().
+     */
+    private int skipToCandidate(CharSequence input, int pos) {
+        int n = input.length();
+        if (!literalPrefix.isEmpty()) {
+            if (input instanceof String s) {
+                int idx = s.indexOf(literalPrefix, pos);
+                return idx == -1 ? n : idx;
+            }
+            for (int last = n - literalPrefix.length(); pos <= last; pos++) {
+                int k = 0;
+                while (k < literalPrefix.length() && input.charAt(pos + k) == literalPrefix.charAt(k)) k++;
+                if (k == literalPrefix.length()) return pos;
+            }
+            return n;
+        }
+        while (pos < n && !def.canStartToken(input.charAt(pos))) pos++;
+        return pos;
+    }
+
+    /**
+     * Runs the unanchored table from pos and returns the end (exclusive) of the earliest
+     * non-empty match, or -1 if no match ends in the rest of the input.
+     */
+    private int earliestAcceptEnd(CharSequence input, int pos) {
+        int n = input.length();
+        int state = searchDef.startState;
+        for (int j = pos; j < n; j++) {
+            int a = searchDef.alphabetIndex(input.charAt(j));
+            // A character outside the alphabet cannot be part of a match: restart after it
+            state = (a == -1) ? searchDef.startState : searchDef.transitions[state][a];
+            if (state == -1) state = searchDef.startState;
+            else if (a != -1 && searchDef.isFinal[state]) return j + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Follows the forced path from the start state: while the current state is not accepting
+     * and has exactly one outgoing transition on a single character, that character belongs to every match.
+     */
+    private static String extractLiteralPrefix(LexerDefinition def) {
+        StringBuilder sb = new StringBuilder();
+        int state = def.startState;
+        for (int steps = 0; steps < def.transitions.length; steps++) {
+            if (def.isFinal[state]) break;
+            int only = -1;
+            int count = 0;
+            for (int a = 0; a < def.transitions[state].length; a++) {
+                if (def.transitions[state][a] != -1) {
+                    only = a;
+                    count++;
+                }
+            }
+            if (count != 1) break;
+            // The column must be a class of exactly one character
+            int symbol = -1;
+            for (int a = 0; a < def.alphabet.size(); a++) {
+                if (def.alphabetClasses[a] != only) continue;
+                if (symbol != -1) {
+                    symbol = -2;
+                    break;
+                }
+                symbol = a;
+            }
+            if (symbol < 0) break;
+            sb.append(def.alphabet.get(symbol));
+            state = def.transitions[state][only];
+        }
+        return sb.toString();
+    }
+}
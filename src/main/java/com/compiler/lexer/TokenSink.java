@@ -0,0 +1,23 @@
+package com.compiler.lexer;
+
+/**
+ * Receives the tokens of one input from Tokenizer.tokenizeInto, in input order.
+ * Each token is given as its type, start and end offsets in the input and its decoded value (see ValueDecoder).
+ *
+ * Implementations: TokenBuffer (heap arrays) and OffHeapTokenStore (direct or memory-mapped buffers),
+ * which are also TokenStores and can be read back by index.
+ */
+public interface TokenSink {
+    /**
+     * Appends a token; called by the tokenizer.
+     * @param outOfRange true if the token is a literal too large for its rule's value decoder (value is then 0)
+     */
+    void add(String type, int start, int end, long value, boolean outOfRange);
+
+    /**
+     * Appends a token whose value, if it has one, is in range.
+     */
+    default void add(String type, int start, int end, long value) {
+        add(type, start, end, value, false);
+    }
+}
@@ -0,0 +1,61 @@
+package com.compiler.lexer;
+
+/**
+ * Indexed, read-only view of the tokens of one input.
+ * Each token has a type, start and end offsets in the input and a decoded value (see ValueDecoder);
+ * lexemes are read from the input on demand.
+ *
+ * Implementations: TokenBuffer (heap arrays) and OffHeapTokenStore (direct or memory-mapped buffers),
+ * which are filled as TokenSinks by Tokenizer.tokenizeInto, and the entries of TokenCache.
+ */
+public interface TokenStore {
+    /**
+     * Returns the number of tokens.
+     */
+    int size();
+
+    /**
+     * Returns the token type of token i.
+     */
+    String type(int i);
+
+    /**
+     * Returns the start offset of token i.
+     */
+    int start(int i);
+
+    /**
+     * Returns the end offset (exclusive) of token i.
+     */
+    int end(int i);
+
+    /**
+     * Returns the decoded value of an int or hex literal (0 for tokens without a decoder).
+     */
+    long longValue(int i);
+
+    /**
+     * Returns true if token i is an int or hex literal too large for 64 bits. The token is kept, with
+     * a value of 0, since its rule accepts it; only its value cannot be represented.
+     */
+    boolean outOfRange(int i);
+
+    /**
+     * Returns the decoded value of a float literal.
+     */
+    default double doubleValue(int i) {
+        return Double.longBitsToDouble(longValue(i));
+    }
+
+    /**
+     * Returns the lexeme of token i, read from the input.
+     */
+    String lexeme(int i);
+
+    /**
+     * Returns token i as a Token object.
+     */
+    default Token token(int i) {
+        return new Token(type(i), lexeme(i), start(i), end(i));
+    }
+}
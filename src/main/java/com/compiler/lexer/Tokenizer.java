@@ -1,59 +1,484 @@
 package com.compiler.lexer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Tokenizer driven by a portable LexerDefinition (transition table).
  * Implements longest-match (maximal munch) semantics: at each input position
  * it advances as far as possible and selects the last accepting state reached.
+ * With a HybridLexer, the lazy engine is also run at each position and the longer match wins.
  */
 public class Tokenizer {
     private final LexerDefinition def;
+    private final HybridLexer hybrid; // null for a table-only lexer
+    private boolean loopSkipping = true;
+    private boolean coalesceUnknown = false;
+    private SymbolTable symbols; // null when interning is disabled
+    private Set<String> internTypes = Collections.emptySet();
+    private boolean[] internState = new boolean[0]; // state -> its token type is interned
 
     public Tokenizer(LexerDefinition def) {
         this.def = def;
+        this.hybrid = null;
+    }
+
+    public Tokenizer(HybridLexer hybrid) {
+        this.def = hybrid.definition;
+        this.hybrid = hybrid.fallback == null ? null : hybrid;
+    }
+
+    /**
+     * Enables or disables the self-loop fast path (enabled by default).
+     * When the DFA enters a state that loops on itself over a character class (identifier
+     * bodies, digit runs, whitespace, comment bodies), the whole run is skipped by testing
+     * each character against the state's ASCII bitmask instead of looking up the table.
+     */
+    public void setLoopSkipping(boolean loopSkipping) {
+        this.loopSkipping = loopSkipping;
+    }
+
+    /**
+     * Enables or disables coalescing of unrecognized input (disabled by default).
+     * When enabled, consecutive characters that do not start a token are reported as a single
+     * UNKNOWN token: after a failed match the tokenizer fast-scans to the next character that
+     * can start a token (LexerDefinition.canStartToken), so binary junk or unsupported scripts
+     * cost one Token per run instead of one per character.
+     */
+    public void setCoalesceUnknown(boolean coalesceUnknown) {
+        this.coalesceUnknown = coalesceUnknown;
+    }
+
+    /**
+     * Enables interning of the lexemes of the given token types (typically identifiers) in a symbol
+     * table, or disables it when symbols is null. Interned tokens share the table's canonical String
+     * and carry its symbol id in Token.symbol; the lookup reads the matched characters in place, so
+     * repeated names allocate nothing. Keywords are not interned. The table may be shared by several
+     * tokenizers used from one thread, so that symbol ids are stable across inputs.
+     */
+    public void setSymbolTable(SymbolTable symbols, Set<String> tokenTypes) {
+        this.symbols = symbols;
+        this.internTypes = symbols == null ? Collections.emptySet() : new HashSet<>(tokenTypes);
+        this.internState = new boolean[def.tokenTypeNames.length];
+        for (int s = 0; s < internState.length; s++) internState[s] = internTypes.contains(def.tokenTypeNames[s]);
     }
 
     /**
      * Tokenize the entire input and return a list of Tokens.
+     * Matches of skip rules (see LexerDefinition.skipTypes) are consumed and produce no Token.
+     * Matches equal to a keyword of their rule (see LexerDefinition.keywordTables) get the keyword's type.
      * Unknown characters (not in the alphabet or with no valid transition)
-     * are emitted as tokens with type "UNKNOWN" and length 1.
+     * are emitted as tokens with type "UNKNOWN" and length 1, or as one UNKNOWN token
+     * per run of such characters when coalescing is enabled.
+     * Any CharSequence is read in place (StringBuilder, CharBuffer from its position, ...).
+     */
+    public List<Token> tokenize(CharSequence input) {
+        return tokenize(CharView.of(input));
+    }
+
+    /**
+     * Tokenize the region input[offset, offset + length) without copying it into a String.
+     * The hot loops read the array directly; token offsets are relative to offset.
+     * @throws IndexOutOfBoundsException if the region is outside the array
+     */
+    public List<Token> tokenize(char[] input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length);
+        return tokenize(CharView.of(input, offset, length));
+    }
+
+    /**
+     * Returns an iterator that scans one token per call to next, with the semantics of tokenize.
+     * Nothing is scanned ahead of the consumer, so memory stays constant and a consumer that
+     * stops early stops the lexing. The input must not change while it is iterated.
+     */
+    public Iterator<Token> iterator(CharSequence input) {
+        return new Cursor(CharView.of(input), true);
+    }
+
+    /**
+     * Returns a lazy iterator over the region input[offset, offset + length); see iterator(CharSequence).
+     * @throws IndexOutOfBoundsException if the region is outside the array
+     */
+    public Iterator<Token> iterator(char[] input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length);
+        return new Cursor(CharView.of(input, offset, length), true);
+    }
+
+    /**
+     * Returns a sequential, ordered stream of the tokens of input, scanned on demand
+     * (short-circuiting operations such as findFirst or limit stop the lexing early).
+     */
+    public Stream<Token> stream(CharSequence input) {
+        Spliterator<Token> tokens = Spliterators.spliteratorUnknownSize(iterator(input), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(tokens, false);
+    }
+
+    /**
+     * Tokenize the input into a columnar TokenBuffer instead of a list of Tokens. Lexemes are not
+     * allocated (the buffer reads them from the input on demand), and tokens of rules that declare a
+     * value decoder (see TokenRule) get their numeric value decoded from the input into the buffer's
+     * value column. An int or hex literal too large for 64 bits (e.g. a 20-digit int) is kept with a
+     * value of 0 and flagged (see TokenStore.outOfRange). Symbol interning does not apply to buffers.
+     */
+    public TokenBuffer tokenizeToBuffer(CharSequence input) {
+        return tokenizeInto(input, new TokenBuffer(input));
+    }
+
+    /**
+     * Tokenize the region input[offset, offset + length) into a TokenBuffer; see tokenizeToBuffer(CharSequence).
+     * Offsets are relative to offset.
+     * @throws IndexOutOfBoundsException if the region is outside the array
+     */
+    public TokenBuffer tokenizeToBuffer(char[] input, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, input.length);
+        CharView region = CharView.of(input, offset, length);
+        return tokenizeInto(region, new TokenBuffer(region));
+    }
+
+    /**
+     * Tokenize the input into any TokenSink (for example an OffHeapTokenStore for inputs with too many
+     * tokens for the heap), as tokenizeToBuffer does. A sink that is also a TokenStore must read its
+     * lexemes from the same input.
+     * @return the sink
      */
-    public List<Token> tokenize(String input) {
+    public <S extends TokenSink> S tokenizeInto(CharSequence input, S sink) {
+        Cursor cursor = new Cursor(CharView.of(input), false);
+        while (cursor.scanInto(sink)) { }
+        return sink;
+    }
+
+    /**
+     * Returns the table of this tokenizer.
+     */
+    LexerDefinition definition() {
+        return def;
+    }
+
+    /**
+     * Describes what determines the tokens besides the table: the options and the rules of the lazy engine.
+     */
+    String configurationKey() {
+        return "coalesceUnknown=" + coalesceUnknown
+            + (hybrid == null ? "" : ";fallback=" + hybrid.getFallbackRules());
+    }
+
+    private List<Token> tokenize(CharView input) {
         List<Token> out = new ArrayList<>();
-        int n = input.length();
-        int pos = 0;
-        while (pos < n) {
-            int state = def.startState;
-            int lastAcceptState = -1;
-            int lastAcceptPos = -1;
-            int j = pos;
-            while (j < n) {
-                char c = input.charAt(j);
-                int a = def.alphabetIndex(c);
-                if (a == -1) break; // char not in alphabet
-                state = def.transitions[state][a];
-                if (state == -1) break; // no transition
-                if (def.isFinal[state]) {
-                    lastAcceptState = state;
-                    lastAcceptPos = j + 1;
+        Cursor cursor = new Cursor(input, true);
+        for (Token t = cursor.scan(); t != null; t = cursor.scan()) out.add(t);
+        return out;
+    }
+
+    /**
+     * Scanning state over one input: produces the tokens one at a time.
+     * The options of the tokenizer are read when the cursor is created.
+     */
+    private final class Cursor implements Iterator<Token> {
+        private final CharView input;
+        private final int n;
+        private final boolean loopSkipping = Tokenizer.this.loopSkipping;
+        private final boolean coalesceUnknown = Tokenizer.this.coalesceUnknown;
+        private final SymbolTable symbols = Tokenizer.this.symbols;
+        private final Set<String> internTypes = Tokenizer.this.internTypes;
+        private final boolean[] internState = Tokenizer.this.internState;
+        private int pos = 0;
+        private int unknownStart = -1; // start of the pending UNKNOWN span in coalescing mode
+        private Token next; // token scanned by hasNext, not yet returned
+
+        // Capture groups, recorded by the tagged DFA of the grouped rules in step with the table (null if no rule has groups)
+        private final TaggedDfa.Automaton captureAutomaton;
+        private int[] registers; // registers of the tagged DFA's current state
+        private int[] spareRegisters; // registers of its next state
+        private int[] saved; // registers of the last grouped match the table accepted
+        private int savedRule = -1; // rule of that match in captureAutomaton, or -1
+        private int savedEnd; // end of that match
+
+        // Match decided at pos while an UNKNOWN span was pending, returned by the next call to advance
+        private int pendingEnd = -1; // end of the match, or -1 if there is none
+        private int pendingState; // last accepting table state of the match
+        private String pendingFallbackType; // token type of the lazy engine's match, or null if the table's won
+
+        // The token found by the last call to advance
+        private String type;
+        private int start;
+        private int end;
+        private String keyword; // canonical keyword string, or null
+        private boolean interned; // the lexeme goes through the symbol table
+        private ValueDecoder decoder; // decoder declared by the token's rule, or null
+        private int captured; // rule in captureAutomaton whose groups are in saved, or -1
+
+        /**
+         * @param recordGroups false when the tokens go to a TokenSink, which has no capture groups
+         */
+        Cursor(CharView input, boolean recordGroups) {
+            this.input = input;
+            this.n = input.length();
+            this.captureAutomaton = recordGroups ? def.captureAutomaton : null;
+            if (captureAutomaton != null) {
+                registers = captureAutomaton.newRegisters();
+                spareRegisters = captureAutomaton.newRegisters();
+                saved = new int[captureAutomaton.width];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) next = scan();
+            return next != null;
+        }
+
+        @Override
+        public Token next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Token t = next;
+            next = null;
+            return t;
+        }
+
+        /**
+         * Scans the next token, or returns null at the end of the input.
+         */
+        Token scan() {
+            if (!advance()) return null;
+            if (keyword != null) {
+                // Keyword: reuse the table's canonical string instead of allocating the lexeme
+                return new Token(type, keyword, start, end);
+            }
+            int[] groups = captured == -1 ? null : Arrays.copyOf(saved, captureAutomaton.tagCount(captured));
+            if (interned) {
+                // Interned name: look up the characters in place, allocating only for new names
+                int id = symbols.lookup(input, start, end, true);
+                return new Token(type, symbols.name(id), start, end, id, groups);
+            }
+            return new Token(type, input.text(start, end), start, end, -1, groups);
+        }
+
+        /**
+         * Scans the next token into the sink, decoding its value if its rule declares a decoder.
+         * @return false at the end of the input
+         */
+        boolean scanInto(TokenSink sink) {
+            if (!advance()) return false;
+            long value = 0;
+            boolean outOfRange = false;
+            if (decoder != null) {
+                try {
+                    value = decoder.decode(input, start, end);
+                } catch (ArithmeticException e) {
+                    // The rule accepts the literal (checked when the lexer was built), only its value is too large
+                    outOfRange = true;
                 }
-                j++;
             }
+            sink.add(type, start, end, value, outOfRange);
+            return true;
+        }
+
+        /**
+         * Matches the next token and describes it in type, start, end, keyword, interned, decoder and captured,
+         * without allocating its lexeme.
+         * @return false at the end of the input
+         */
+        private boolean advance() {
+            keyword = null;
+            interned = false;
+            decoder = null;
+            captured = -1;
+            if (pendingEnd != -1) {
+                int end = pendingEnd;
+                pendingEnd = -1;
+                if (take(pendingState, pendingFallbackType, end)) return true;
+            }
+            while (pos < n) {
+                int state = def.startState;
+                int lastAcceptState = -1;
+                int lastAcceptPos = -1;
+                int j = pos;
+                // The tagged DFA reads each char the table reads, as long as some grouped rule may still match
+                int captureState = -1;
+                if (captureAutomaton != null) {
+                    captureState = 0;
+                    captureAutomaton.start(registers, pos);
+                }
+                while (j < n) {
+                    char c = input.charAt(j);
+                    int a = def.alphabetIndex(c);
+                    if (a == -1) break; // char not in alphabet
+                    state = def.transitions[state][a];
+                    if (state == -1) break; // no transition
+                    if (!def.canReachAccept[state]) break; // dead state: no longer match possible
+                    if (captureState != -1) captureState = stepCaptures(captureState, c, j + 1);
+                    if (def.isFinal[state]) {
+                        lastAcceptState = state;
+                        lastAcceptPos = j + 1;
+                        if (captureState != -1 && def.captureRule[state] != -1) save(captureState, def.captureRule[state], j + 1);
+                    }
+                    j++;
+                    if (def.isTerminal[state]) break; // accepting with no way out: match is maximal
+                    if (loopSkipping && captureState == -1 && def.hasSelfLoop(state)) {
+                        int k = skipSelfLoop(j, state);
+                        if (k > j && def.isFinal[state]) lastAcceptPos = k;
+                        j = k;
+                    }
+                }
+
+                String fallbackType = null; // set when the lazy engine's match wins
+                if (hybrid != null) {
+                    int end = hybrid.fallback.match(input, pos);
+                    if (end != -1 && (end > lastAcceptPos || (end == lastAcceptPos
+                            && hybrid.fallback.matchedPriority() < hybrid.tablePriority(def.tokenTypeNames[lastAcceptState])))) {
+                        fallbackType = hybrid.fallback.matchedType();
+                        lastAcceptPos = end;
+                        Integer rule = def.captureRules.get(fallbackType);
+                        if (captureAutomaton != null && rule != null) captureFallback(rule, captureState, j, end);
+                    }
+                }
+
+                if (lastAcceptState == -1 && fallbackType == null) {
+                    if (coalesceUnknown) {
+                        // Extend the pending error span up to the next char that can start a token
+                        if (unknownStart == -1) unknownStart = pos;
+                        pos++;
+                        while (pos < n && !canStartToken(input.charAt(pos))) pos++;
+                        continue;
+                    }
+                    // Emit single-character UNKNOWN token and advance by one
+                    set("UNKNOWN", pos, pos + 1);
+                    pos += 1;
+                    return true;
+                }
+
+                if (unknownStart != -1) {
+                    // Report the error span first and keep the match at pos for the next call
+                    set("UNKNOWN", unknownStart, pos);
+                    unknownStart = -1;
+                    pendingEnd = lastAcceptPos;
+                    pendingState = lastAcceptState;
+                    pendingFallbackType = fallbackType;
+                    return true;
+                }
+                if (take(lastAcceptState, fallbackType, lastAcceptPos)) return true;
+            }
+            if (unknownStart != -1) {
+                set("UNKNOWN", unknownStart, n);
+                unknownStart = -1;
+                return true;
+            }
+            return false;
+        }
 
-            if (lastAcceptState != -1) {
-                String type = def.tokenTypeNames[lastAcceptState];
-                String lexeme = input.substring(pos, lastAcceptPos);
-                out.add(new Token(type, lexeme, pos, lastAcceptPos));
-                pos = lastAcceptPos;
+        /**
+         * Describes the decided match [pos, end) and moves pos to its end.
+         * @param acceptState last accepting table state (unused when fallbackType is set)
+         * @param fallbackType token type of the lazy engine's match, or null if the table's match won
+         * @return false if the match is of a skip rule, which is consumed without being described
+         */
+        private boolean take(int acceptState, String fallbackType, int end) {
+            boolean table = fallbackType == null;
+            boolean skip = table ? def.isSkip[acceptState] : def.skipTypes.contains(fallbackType);
+            if (skip) {
+                // Skip rule (whitespace, comments): consume without allocating a Token or lexeme
+                pos = end;
+                return false;
+            }
+            set(table ? def.tokenTypeNames[acceptState] : fallbackType, pos, end);
+            KeywordTable keywords = table ? def.keywordTable[acceptState] : def.keywordTables.get(fallbackType);
+            int slot = keywords == null ? -1 : keywords.find(input, pos, end);
+            if (slot != -1) {
+                type = keywords.type(slot);
+                keyword = keywords.keyword(slot);
             } else {
-                // Emit single-character UNKNOWN token and advance by one
-                String lexeme = input.substring(pos, pos + 1);
-                out.add(new Token("UNKNOWN", lexeme, pos, pos + 1));
-                pos += 1;
+                interned = symbols != null && (table ? internState[acceptState] : internTypes.contains(fallbackType));
+                decoder = table ? def.valueDecoder[acceptState] : def.valueDecoders.get(fallbackType);
+                int rule = table ? def.captureRule[acceptState] : def.captureRules.getOrDefault(fallbackType, -1);
+                if (rule != -1 && rule == savedRule && end == savedEnd) captured = rule;
             }
+            pos = end;
+            return true;
         }
-        return out;
+
+        /**
+         * Steps the tagged DFA over c, the char before position.
+         * @return its next state, or -1 once no grouped rule can match
+         */
+        private int stepCaptures(int captureState, char c, int position) {
+            int next = captureAutomaton.step(captureState, c, registers, spareRegisters, position);
+            if (next != -1) {
+                int[] swap = registers;
+                registers = spareRegisters;
+                spareRegisters = swap;
+            }
+            return next;
+        }
+
+        /**
+         * Keeps the registers of the configuration that accepts the rule, for the match [pos, end).
+         */
+        private void save(int captureState, int rule, int end) {
+            int slot = captureAutomaton.acceptSlot(captureState, rule);
+            if (slot == -1) return;
+            System.arraycopy(registers, slot * captureAutomaton.width, saved, 0, captureAutomaton.width);
+            savedRule = rule;
+            savedEnd = end;
+        }
+
+        /**
+         * Records the groups of a grouped rule matched by the lazy engine: the tagged DFA resumes where
+         * the table stopped (at reached) and reads on to the end of the match. It restarts from pos only
+         * if it read past the end, when the lazy match is shorter than what the table read.
+         */
+        private void captureFallback(int rule, int captureState, int reached, int end) {
+            if (captureState == -1 || reached > end) {
+                captureState = 0;
+                captureAutomaton.start(registers, pos);
+                reached = pos;
+            }
+            for (int p = reached; p < end && captureState != -1; p++) captureState = stepCaptures(captureState, input.charAt(p), p + 1);
+            if (captureState != -1) save(captureState, rule, end);
+        }
+
+        private void set(String type, int start, int end) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Returns the first position at or after j whose character leaves the given state,
+         * i.e. is not in the state's ASCII self-loop mask.
+         */
+        private int skipSelfLoop(int j, int state) {
+            long low = def.selfLoopLow[state];
+            long high = def.selfLoopHigh[state];
+            while (j < n) {
+                char c = input.charAt(j);
+                if (c < 64) {
+                    if ((low & (1L << c)) == 0) break;
+                } else if (c < 128) {
+                    if ((high & (1L << (c - 64))) == 0) break;
+                } else {
+                    break;
+                }
+                j++;
+            }
+            return j;
+        }
+    }
+
+    /**
+     * Returns true if a token of either engine may start with c.
+     */
+    private boolean canStartToken(char c) {
+        return def.canStartToken(c) || (hybrid != null && hybrid.fallback.canStart(c));
     }
 }
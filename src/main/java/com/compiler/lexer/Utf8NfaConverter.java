@@ -0,0 +1,105 @@
+package com.compiler.lexer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
+
+/**
+ * Utf8NfaConverter
+ * ----------------
+ * Rewrites a character NFA into an equivalent NFA over UTF-8 bytes, so that the resulting DFA can run
+ * directly on encoded input (see ByteTokenizer). Each transition on a character becomes the chain of
+ * its UTF-8 bytes; chains leaving the same state share the states of their common byte prefixes, so
+ * characters with the same lead byte share one intermediate state.
+ *
+ * Bytes are represented as the characters 0..255. Surrogate characters have no UTF-8 encoding of
+ * their own and their transitions are dropped.
+ */
+public class Utf8NfaConverter {
+    /**
+     * Default constructor for Utf8NfaConverter.
+     */
+    public Utf8NfaConverter() {}
+
+    /**
+     * Converts an NFA over characters to an NFA over UTF-8 bytes.
+     * Only transitions on characters of the alphabet are kept.
+     *
+     * @param nfa The NFA (accepting states carry their token type and priority).
+     * @param alphabet Characters whose transitions are converted.
+     * @return Epsilon-free byte NFA whose end state is null.
+     */
+    public static NFA convert(NFA nfa, Set<Character> alphabet) {
+        NFA source = NfaOptimizer.optimize(nfa);
+        Map<State, State> copies = new IdentityHashMap<>();
+        Deque<State> work = new ArrayDeque<>();
+        copies.put(source.startState, copyOf(source.startState));
+        work.push(source.startState);
+        while (!work.isEmpty()) {
+            State original = work.pop();
+            State copy = copies.get(original);
+            Map<String, State> prefixes = new HashMap<>(); // byte prefix -> intermediate state
+            for (Transition t : original.transitions) {
+                if (!alphabet.contains(t.symbol) || Character.isSurrogate(t.symbol)) continue;
+                State target = copies.get(t.toState);
+                if (target == null) {
+                    target = copyOf(t.toState);
+                    copies.put(t.toState, target);
+                    work.push(t.toState);
+                }
+                byte[] bytes = encode(t.symbol);
+                State from = copy;
+                for (int i = 0; i < bytes.length - 1; i++) {
+                    String prefix = new String(bytes, 0, i + 1, StandardCharsets.ISO_8859_1);
+                    State next = prefixes.get(prefix);
+                    if (next == null) {
+                        next = new State();
+                        prefixes.put(prefix, next);
+                        from.transitions.add(new Transition(byteSymbol(bytes[i]), next));
+                    }
+                    from = next;
+                }
+                from.transitions.add(new Transition(byteSymbol(bytes[bytes.length - 1]), target));
+            }
+        }
+        return new NFA(copies.get(source.startState), null);
+    }
+
+    /**
+     * Returns the bytes (as characters 0..255) that occur in the UTF-8 encodings of the alphabet.
+     *
+     * @param alphabet Character alphabet.
+     * @return Byte alphabet, in ascending order.
+     */
+    public static Set<Character> byteAlphabet(Set<Character> alphabet) {
+        Set<Character> bytes = new TreeSet<>();
+        for (char c : alphabet) {
+            if (Character.isSurrogate(c)) continue;
+            for (byte b : encode(c)) bytes.add(byteSymbol(b));
+        }
+        return bytes;
+    }
+
+    private static State copyOf(State s) {
+        State copy = new State();
+        if (s.isFinal()) copy.setFinal(s.tokenTypeName, s.priority);
+        return copy;
+    }
+
+    private static byte[] encode(char c) {
+        return String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static char byteSymbol(byte b) {
+        return (char) (b & 0xFF);
+    }
+}
@@ -0,0 +1,275 @@
+package com.compiler.lexer;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.compiler.lexer.regex.RegexNode;
+import com.compiler.lexer.regex.RegexNodeFactory;
+
+/**
+ * Decoders for the numeric value of a literal, declared per rule with the value=int|hex|float option
+ * (see TokenRule). Values are decoded straight from the matched characters of the input, without a
+ * substring, and returned as a long: the value itself for INT and HEX, the raw bits of the double
+ * (Double.doubleToRawLongBits) for FLOAT. Underscores between digits are ignored.
+ *
+ * A rule's matches must all be literals of its decoder; LexerBuilder checks this when it builds the
+ * lexer (see nonLiteral), so decoding while lexing only fails on values out of range.
+ */
+public enum ValueDecoder {
+    /**
+     * Decimal integer with an optional sign, e.g. -42, from Long.MIN_VALUE to Long.MAX_VALUE.
+     */
+    INT("int"),
+    /**
+     * Hexadecimal integer with an optional 0x prefix, up to 64 bits. Values of 2^63 or more come back as
+     * negative longs (the unsigned value's bits, e.g. 0xFFFFFFFFFFFFFFFF is -1); more than 64 bits is out of range.
+     */
+    HEX("hex"),
+    /**
+     * Decimal floating-point number, e.g. 1.5, -2e-3, .5, 3.0f (a trailing f/F/d/D suffix is ignored).
+     * Values beyond the range of double become infinite, as with Double.parseDouble.
+     */
+    FLOAT("float");
+
+    /**
+     * Name used in token definition files and serialized definitions.
+     */
+    public final String id;
+
+    private static final int MAX_CHECKED_PAIRS = 100_000;
+
+    // Powers of ten that are exact doubles, for the fast path of FLOAT
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    ValueDecoder(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the decoder with the given id (int, hex or float).
+     * @throws IllegalArgumentException if there is none
+     */
+    public static ValueDecoder of(String id) {
+        for (ValueDecoder d : values()) if (d.id.equals(id)) return d;
+        throw new IllegalArgumentException("Unknown value decoder '" + id + "' (expected int, hex or float)");
+    }
+
+    /**
+     * Decodes the literal s[start, end).
+     * @throws NumberFormatException if the characters are not a literal of this kind
+     * @throws ArithmeticException if an INT or HEX literal does not fit in 64 bits
+     */
+    public long decode(CharSequence s, int start, int end) {
+        return decode(CharView.of(s), start, end);
+    }
+
+    long decode(CharView s, int start, int end) {
+        return switch (this) {
+            case INT -> decodeInt(s, start, end);
+            case HEX -> decodeHex(s, start, end);
+            case FLOAT -> Double.doubleToRawLongBits(decodeFloat(s, start, end));
+        };
+    }
+
+    private static long decodeInt(CharView s, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        // Accumulate negatively so that Long.MIN_VALUE is representable
+        long value = 0;
+        boolean anyDigit = false;
+        boolean overflow = false;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '_') continue;
+            if (c < '0' || c > '9') throw invalid(s, start, end);
+            anyDigit = true;
+            if (value < Long.MIN_VALUE / 10 || value * 10 < Long.MIN_VALUE + (c - '0')) overflow = true;
+            value = value * 10 - (c - '0');
+        }
+        if (!anyDigit) throw invalid(s, start, end);
+        if (overflow || (!negative && value == Long.MIN_VALUE)) throw outOfRange(s, start, end);
+        return negative ? value : -value;
+    }
+
+    private static long decodeHex(CharView s, int start, int end) {
+        int i = start;
+        if (end - i >= 2 && s.charAt(i) == '0' && (s.charAt(i + 1) | 0x20) == 'x') i += 2;
+        long value = 0;
+        boolean anyDigit = false;
+        int digits = 0; // significant digits
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '_') continue;
+            int d = c >= '0' && c <= '9' ? c - '0' : (c | 0x20) >= 'a' && (c | 0x20) <= 'f' ? (c | 0x20) - 'a' + 10 : -1;
+            if (d < 0) throw invalid(s, start, end);
+            anyDigit = true;
+            if (digits > 0 || d != 0) digits++;
+            value = (value << 4) | d;
+        }
+        if (!anyDigit) throw invalid(s, start, end);
+        if (digits > 16) throw outOfRange(s, start, end);
+        return value;
+    }
+
+    /**
+     * Decodes exactly when the significand has at most 15 digits and the decimal exponent is within
+     * the exact powers of ten (one correctly rounded multiplication or division); otherwise falls
+     * back to Double.parseDouble.
+     */
+    private static double decodeFloat(CharView s, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        int last = end;
+        if (last > i && "fFdD".indexOf(s.charAt(last - 1)) >= 0) last--;
+        long significand = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean fraction = false;
+        for (; i < last; i++) {
+            char c = s.charAt(i);
+            if (c == '_') continue;
+            if (c == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            if (c < '0' || c > '9') break;
+            anyDigit = true;
+            if (significantDigits > 0 || c != '0') {
+                if (significantDigits < 19) {
+                    significand = significand * 10 + (c - '0');
+                    if (fraction) exponent--;
+                } else if (!fraction) {
+                    exponent++;
+                }
+                significantDigits++;
+            } else if (fraction) {
+                exponent--;
+            }
+        }
+        if (!anyDigit) throw invalid(s, start, end);
+        if (i < last) {
+            char c = s.charAt(i++);
+            if (c != 'e' && c != 'E') throw invalid(s, start, end);
+            boolean negativeExponent = false;
+            if (i < last && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negativeExponent = s.charAt(i) == '-';
+                i++;
+            }
+            if (i == last) throw invalid(s, start, end);
+            int e = 0;
+            for (; i < last; i++) {
+                char d = s.charAt(i);
+                if (d < '0' || d > '9') throw invalid(s, start, end);
+                if (e < 100_000) e = e * 10 + (d - '0');
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (significand == 0) return negative ? -0.0 : 0.0;
+        if (significantDigits <= 15 && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            double value = exponent >= 0 ? significand * POWERS_OF_TEN[exponent] : significand / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(s.text(start, last).replace("_", ""));
+    }
+
+    private static NumberFormatException invalid(CharView s, int start, int end) {
+        return new NumberFormatException("Not a valid literal: \"" + s.text(start, end) + "\"");
+    }
+
+    private static ArithmeticException outOfRange(CharView s, int start, int end) {
+        return new ArithmeticException("Literal out of the 64-bit range: \"" + s.text(start, end) + "\"");
+    }
+
+    /**
+     * Returns the literals this decoder accepts, as a regex AST of the given factory.
+     */
+    RegexNode syntax(RegexNodeFactory f) {
+        RegexNode digit = f.chars("0123456789".toCharArray());
+        RegexNode sign = f.optional(f.chars("+-".toCharArray()));
+        switch (this) {
+            case INT: {
+                RegexNode digitsOrUnderscores = f.star(f.chars("0123456789_".toCharArray()));
+                return f.concat(List.of(sign, digitsOrUnderscores, digit, digitsOrUnderscores));
+            }
+            case HEX: {
+                RegexNode hexDigit = f.chars("0123456789abcdefABCDEF".toCharArray());
+                RegexNode hexDigitsOrUnderscores = f.star(f.chars("0123456789abcdefABCDEF_".toCharArray()));
+                RegexNode prefix = f.optional(f.concat(f.character('0'), f.chars("xX".toCharArray())));
+                return f.concat(List.of(prefix, hexDigitsOrUnderscores, hexDigit, hexDigitsOrUnderscores));
+            }
+            default: {
+                RegexNode digitsOrUnderscores = f.star(f.chars("0123456789_".toCharArray()));
+                RegexNode dot = f.character('.');
+                // At least one digit, before the dot or after it
+                RegexNode mantissa = f.union(
+                    f.concat(List.of(digitsOrUnderscores, digit, digitsOrUnderscores, f.optional(f.concat(dot, digitsOrUnderscores)))),
+                    f.concat(List.of(digitsOrUnderscores, dot, digitsOrUnderscores, digit, digitsOrUnderscores)));
+                RegexNode exponent = f.optional(f.concat(List.of(f.chars("eE".toCharArray()), sign, f.plus(digit))));
+                RegexNode suffix = f.optional(f.chars("fFdD".toCharArray()));
+                return f.concat(List.of(sign, mantissa, exponent, suffix));
+            }
+        }
+    }
+
+    /**
+     * Returns a shortest string matched by the rule that is not a literal of this decoder, or null
+     * if every match is a literal. Explores pairs of Brzozowski derivatives of the rule and of the
+     * decoder's syntax breadth-first, over the characters of the rule.
+     * @param f factory of the rule's AST
+     * @param rule the rule's regex AST
+     * @throws IllegalArgumentException if the answer is not known after MAX_CHECKED_PAIRS pairs
+     */
+    String nonLiteral(RegexNodeFactory f, RegexNode rule) {
+        return nonLiteral(f, rule, MAX_CHECKED_PAIRS);
+    }
+
+    /**
+     * nonLiteral(f, rule) with a limit on the number of pairs explored.
+     */
+    String nonLiteral(RegexNodeFactory f, RegexNode rule, int maxPairs) {
+        Set<Character> chars = new TreeSet<>();
+        collectChars(rule, chars);
+        Map<List<RegexNode>, String> reached = new HashMap<>(); // (rule, syntax) derivatives -> shortest prefix
+        ArrayDeque<List<RegexNode>> queue = new ArrayDeque<>();
+        List<RegexNode> first = List.of(rule, syntax(f));
+        reached.put(first, "");
+        queue.add(first);
+        while (!queue.isEmpty()) {
+            if (reached.size() >= maxPairs) {
+                throw new IllegalArgumentException("its matches could not all be checked against " + id
+                    + " literals within " + maxPairs + " derivative pairs");
+            }
+            List<RegexNode> pair = queue.poll();
+            String prefix = reached.get(pair);
+            if (pair.get(0).nullable && !pair.get(1).nullable) return prefix;
+            for (char c : chars) {
+                RegexNode r = f.derivative(pair.get(0), c);
+                if (r.kind == RegexNode.Kind.VOID) continue;
+                List<RegexNode> next = List.of(r, f.derivative(pair.get(1), c));
+                if (reached.putIfAbsent(next, prefix + c) == null) queue.add(next);
+            }
+        }
+        return null;
+    }
+
+    private static void collectChars(RegexNode node, Set<Character> chars) {
+        for (char c : node.getChars()) chars.add(c);
+        for (RegexNode child : node.getChildren()) collectChars(child, chars);
+    }
+}
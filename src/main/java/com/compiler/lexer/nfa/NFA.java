@@ -1,7 +1,11 @@
 
 package com.compiler.lexer.nfa;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Represents a Non-deterministic Finite Automaton (NFA) with a start and end state.
@@ -14,12 +18,24 @@ public class NFA {
     /**
      * Combina una lista de NFAs en uno solo, con un estado inicial común y transiciones epsilon.
      * Los estados finales de cada NFA deben estar marcados con su TokenType.
+     * <p>
+     * NFAs that recognize a single literal string (operators, reserved words) are not linked
+     * through epsilon transitions: their strings are merged into a prefix trie rooted at the new
+     * start state, with each rule's token type and priority on the trie node where its literal
+     * ends. The start state's epsilon-closure then grows with the non-literal rules only, and
+     * literals sharing a prefix share its states.
      * @param nfas Lista de NFAs a unir
      * @return NFA combinado
      */
     public static NFA union(List<NFA> nfas) {
         State newStart = new State();
+        Map<State, Map<Character, State>> trie = new HashMap<>();
         for (NFA nfa : nfas) {
+            State accept = literalEnd(nfa);
+            if (accept != null) {
+                addToTrie(trie, newStart, nfa, accept);
+                continue;
+            }
             // Transición epsilon del nuevo estado inicial a cada NFA
             newStart.transitions.add(new com.compiler.lexer.nfa.Transition(null, nfa.startState));
         }
@@ -27,6 +43,61 @@ public class NFA {
         // El NFA combinado usa el nuevo estado inicial y no necesita un estado final único
         return new NFA(newStart, null);
     }
+
+    /**
+     * Returns the accepting state of an NFA that is a single chain of transitions (at most one
+     * per state) ending in a final state with no way out, i.e. one that matches exactly one
+     * literal string; returns null for any other NFA.
+     */
+    private static State literalEnd(NFA nfa) {
+        State s = nfa.startState;
+        Set<State> seen = new HashSet<>();
+        while (seen.add(s)) {
+            if (s.transitions.isEmpty()) return s.isFinal() ? s : null;
+            if (s.isFinal() || s.transitions.size() != 1) return null;
+            s = s.transitions.get(0).toState;
+        }
+        return null; // cycle
+    }
+
+    /**
+     * Adds the literal matched by a chain NFA to the trie, marking the node where it ends with
+     * the chain's token type; when two rules share a literal, the better priority is kept.
+     */
+    private static void addToTrie(Map<State, Map<Character, State>> trie, State root, NFA nfa, State accept) {
+        State node = root;
+        for (State s = nfa.startState; s != accept; s = s.transitions.get(0).toState) {
+            Character symbol = s.transitions.get(0).symbol;
+            if (symbol == null) continue;
+            Map<Character, State> children = trie.computeIfAbsent(node, k -> new HashMap<>());
+            State child = children.get(symbol);
+            if (child == null) {
+                child = new State();
+                children.put(symbol, child);
+                node.transitions.add(new Transition(symbol, child));
+            }
+            node = child;
+        }
+        if (!node.isFinal() || accept.priority < node.priority) {
+            node.setFinal(accept.tokenTypeName, accept.priority);
+        }
+    }
+    /**
+     * Builds the unanchored version of an NFA: a new start state that loops on every alphabet
+     * symbol (an implicit ".*" prefix) and has an epsilon transition to the original start state.
+     * The original states are shared, not copied.
+     * @param nfa NFA to make unanchored
+     * @param alphabet symbols consumed by the leading loop
+     * @return NFA that accepts every input ending with a match of the original NFA
+     */
+    public static NFA unanchored(NFA nfa, Set<Character> alphabet) {
+        State newStart = new State();
+        for (Character c : alphabet) {
+            newStart.transitions.add(new Transition(c, newStart));
+        }
+        newStart.transitions.add(new Transition(null, nfa.startState));
+        return new NFA(newStart, nfa.endState);
+    }
     /**
      * The initial (start) state of the NFA.
      */
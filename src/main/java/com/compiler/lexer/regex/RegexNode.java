@@ -0,0 +1,182 @@
+package com.compiler.lexer.regex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * RegexNode
+ * ---------
+ * Immutable node of the regex abstract syntax tree built between the postfix form and the NFA.
+ * Nodes are only created through a {@link RegexNodeFactory}, which hash-conses them: within one
+ * factory, structurally equal nodes are the same object, so children can be compared by identity
+ * and shared subexpressions are stored once.
+ *
+ * Kinds:
+ * - VOID: matches nothing (the empty language); produced by derivatives.
+ * - EMPTY: the empty string (epsilon).
+ * - CHARS: one character out of a sorted set of characters (a character class).
+ * - CONCAT, UNION: two or more children.
+ * - STAR, PLUS, OPTIONAL: exactly one child.
+ */
+public final class RegexNode {
+    /**
+     * The operator (or leaf type) of a node.
+     */
+    public enum Kind { VOID, EMPTY, CHARS, CONCAT, UNION, STAR, PLUS, OPTIONAL }
+
+    /**
+     * The operator of this node.
+     */
+    public final Kind kind;
+    /**
+     * True if this node matches the empty string.
+     */
+    public final boolean nullable;
+    final char[] chars; // CHARS only: sorted, without duplicates
+    final List<RegexNode> children;
+    private final int hash;
+    /**
+     * Creation order within the factory; used to sort union alternatives canonically.
+     */
+    int id = -1;
+
+    RegexNode(Kind kind, char[] chars, List<RegexNode> children) {
+        this.kind = kind;
+        this.chars = chars;
+        this.children = children;
+        this.nullable = computeNullable();
+        int h = kind.hashCode();
+        h = 31 * h + Arrays.hashCode(chars);
+        for (RegexNode child : children) h = 31 * h + System.identityHashCode(child);
+        this.hash = h;
+    }
+
+    private boolean computeNullable() {
+        switch (kind) {
+            case EMPTY:
+            case STAR:
+            case OPTIONAL:
+                return true;
+            case VOID:
+            case CHARS:
+                return false;
+            case CONCAT:
+                for (RegexNode child : children) if (!child.nullable) return false;
+                return true;
+            case UNION:
+                for (RegexNode child : children) if (child.nullable) return true;
+                return false;
+            default: // PLUS
+                return children.get(0).nullable;
+        }
+    }
+
+    /**
+     * Returns the characters of a CHARS node (empty for other kinds).
+     * @return sorted copy of the character class
+     */
+    public char[] getChars() {
+        return chars == null ? new char[0] : chars.clone();
+    }
+
+    /**
+     * Returns the children of this node (empty for VOID, EMPTY and CHARS).
+     * @return unmodifiable list of children
+     */
+    public List<RegexNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Collects the CHARS nodes that can match the first character of an input: the heads whose
+     * membership decides the derivative of this node for every character.
+     * @param out set receiving the head nodes
+     */
+    public void collectHeads(Set<RegexNode> out) {
+        switch (kind) {
+            case CHARS:
+                out.add(this);
+                break;
+            case CONCAT:
+                for (RegexNode child : children) {
+                    child.collectHeads(out);
+                    if (!child.nullable) break;
+                }
+                break;
+            default:
+                for (RegexNode child : children) child.collectHeads(out);
+        }
+    }
+
+    /**
+     * Returns the number of nodes in this tree, counting shared subexpressions once per use.
+     * @return tree size
+     */
+    public int size() {
+        int n = 1;
+        for (RegexNode child : children) n += child.size();
+        return n;
+    }
+
+    /**
+     * Structural equality; children are compared by identity because they are hash-consed.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        RegexNode other = (RegexNode) obj;
+        if (kind != other.kind || hash != other.hash || !Arrays.equals(chars, other.chars)) return false;
+        if (children.size() != other.children.size()) return false;
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i) != other.children.get(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the node in the infix syntax accepted by RegexParser.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        switch (kind) {
+            case VOID:
+                sb.append("{}");
+                break;
+            case EMPTY:
+                sb.append("()");
+                break;
+            case CHARS:
+                if (chars.length > 1) sb.append('(');
+                for (int i = 0; i < chars.length; i++) {
+                    if (i > 0) sb.append('|');
+                    sb.append(chars[i]);
+                }
+                if (chars.length > 1) sb.append(')');
+                break;
+            case CONCAT:
+                for (RegexNode child : children) sb.append(child.kind == Kind.UNION ? "(" + child + ")" : child.toString());
+                break;
+            case UNION:
+                for (int i = 0; i < children.size(); i++) {
+                    if (i > 0) sb.append('|');
+                    sb.append(children.get(i));
+                }
+                break;
+            default:
+                RegexNode child = children.get(0);
+                boolean group = child.kind == Kind.CONCAT || child.kind == Kind.UNION;
+                sb.append(group ? "(" + child + ")" : child.toString());
+                sb.append(kind == Kind.STAR ? '*' : kind == Kind.PLUS ? '+' : '?');
+        }
+        return sb.toString();
+    }
+}
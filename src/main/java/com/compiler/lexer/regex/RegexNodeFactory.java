@@ -0,0 +1,341 @@
+package com.compiler.lexer.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.compiler.lexer.regex.RegexNode.Kind;
+
+/**
+ * RegexNodeFactory
+ * ----------------
+ * Creates hash-consed {@link RegexNode}s through smart constructors that keep every tree
+ * in a simplified, canonical form:
+ * - Concatenations are flattened, drop epsilon operands and collapse x*x* into x*.
+ * - Unions are flattened, deduplicated and sorted; common prefixes are factored out
+ *   (so keyword lists become tries), single-character alternatives are merged into one
+ *   character class, and an epsilon alternative turns the union into an optional.
+ * - Redundant closures are removed: (x*)*, (x+)*, (x?)*, (x*)?, (x?)+ ... all become x*,
+ *   and (x+)+ becomes x+, (x?)? becomes x?.
+ * - The empty language (VOID) annihilates concatenations and disappears from unions.
+ * - Counted repetitions are unrolled over a single shared copy of the operand.
+ *
+ * Because every node is canonical, the factory can also compute Brzozowski derivatives whose
+ * results stay finite in number, which makes derivative-based DFA construction terminate.
+ */
+public class RegexNodeFactory {
+    private final Map<RegexNode, RegexNode> table = new HashMap<>();
+    private final RegexNode empty;
+    private final RegexNode nothing;
+    private final Map<RegexNode, Map<Character, RegexNode>> derivatives = new HashMap<>();
+    private final Map<RegexNode, RegexNode> caseFolded = new HashMap<>();
+
+    /**
+     * Creates a factory with its own hash-consing table.
+     */
+    public RegexNodeFactory() {
+        this.empty = intern(new RegexNode(Kind.EMPTY, null, Collections.emptyList()));
+        this.nothing = intern(new RegexNode(Kind.VOID, null, Collections.emptyList()));
+    }
+
+    /**
+     * Returns the canonical instance of a node, registering it if it is new.
+     */
+    private RegexNode intern(RegexNode node) {
+        RegexNode existing = table.get(node);
+        if (existing != null) return existing;
+        node.id = table.size();
+        table.put(node, node);
+        return node;
+    }
+
+    /**
+     * Returns the number of distinct nodes created by this factory.
+     * @return size of the hash-consing table
+     */
+    public int distinctNodes() {
+        return table.size();
+    }
+
+    /**
+     * The empty-string node.
+     * @return epsilon
+     */
+    public RegexNode empty() {
+        return empty;
+    }
+
+    /**
+     * The empty-language node, which matches nothing.
+     * @return VOID
+     */
+    public RegexNode nothing() {
+        return nothing;
+    }
+
+    /**
+     * A single character.
+     * @param c the character
+     * @return CHARS node matching only c
+     */
+    public RegexNode character(char c) {
+        return intern(new RegexNode(Kind.CHARS, new char[] { c }, Collections.emptyList()));
+    }
+
+    /**
+     * A character class.
+     * @param chars the characters (any order, duplicates allowed, at least one)
+     * @return CHARS node matching any one of the characters
+     */
+    public RegexNode chars(char[] chars) {
+        char[] sorted = chars.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[n++] = sorted[i];
+        }
+        return intern(new RegexNode(Kind.CHARS, Arrays.copyOf(sorted, n), Collections.emptyList()));
+    }
+
+    /**
+     * Concatenation of two nodes.
+     */
+    public RegexNode concat(RegexNode a, RegexNode b) {
+        List<RegexNode> parts = new ArrayList<>();
+        parts.add(a);
+        parts.add(b);
+        return concat(parts);
+    }
+
+    /**
+     * Concatenation of a sequence of nodes (epsilon if the sequence is empty).
+     */
+    public RegexNode concat(List<RegexNode> nodes) {
+        List<RegexNode> flat = new ArrayList<>();
+        for (RegexNode node : nodes) {
+            if (node.kind == Kind.VOID) return nothing;
+            if (node.kind == Kind.CONCAT) flat.addAll(node.children);
+            else if (node.kind != Kind.EMPTY) flat.add(node);
+        }
+        // x*x* = x*
+        List<RegexNode> parts = new ArrayList<>();
+        for (RegexNode node : flat) {
+            if (node.kind == Kind.STAR && !parts.isEmpty() && parts.get(parts.size() - 1) == node) continue;
+            parts.add(node);
+        }
+        if (parts.isEmpty()) return empty;
+        if (parts.size() == 1) return parts.get(0);
+        return intern(new RegexNode(Kind.CONCAT, null, Collections.unmodifiableList(parts)));
+    }
+
+    /**
+     * Union of two nodes.
+     */
+    public RegexNode union(RegexNode a, RegexNode b) {
+        List<RegexNode> alternatives = new ArrayList<>();
+        alternatives.add(a);
+        alternatives.add(b);
+        return union(alternatives);
+    }
+
+    /**
+     * Union of a list of alternatives (at least one).
+     */
+    public RegexNode union(List<RegexNode> nodes) {
+        // Flatten nested unions and deduplicate (nodes are canonical, so identity suffices)
+        TreeSet<RegexNode> set = new TreeSet<>(Comparator.comparingInt((RegexNode n) -> n.id));
+        boolean hasEmpty = false;
+        for (RegexNode node : nodes) {
+            if (node.kind == Kind.UNION) set.addAll(node.children);
+            else if (node.kind == Kind.EMPTY) hasEmpty = true;
+            else if (node.kind != Kind.VOID) set.add(node);
+        }
+
+        // Factor common prefixes: group alternatives by their first element
+        Map<RegexNode, List<List<RegexNode>>> byHead = new LinkedHashMap<>();
+        for (RegexNode node : set) {
+            List<RegexNode> seq = node.kind == Kind.CONCAT ? node.children : Collections.singletonList(node);
+            byHead.computeIfAbsent(seq.get(0), k -> new ArrayList<>()).add(seq);
+        }
+        List<RegexNode> factored = new ArrayList<>();
+        for (Map.Entry<RegexNode, List<List<RegexNode>>> group : byHead.entrySet()) {
+            List<List<RegexNode>> seqs = group.getValue();
+            if (seqs.size() == 1) {
+                factored.add(concat(seqs.get(0)));
+                continue;
+            }
+            List<RegexNode> tails = new ArrayList<>();
+            for (List<RegexNode> seq : seqs) tails.add(concat(seq.subList(1, seq.size())));
+            factored.add(concat(group.getKey(), union(tails)));
+        }
+
+        // Merge single-character alternatives into one class
+        List<RegexNode> alternatives = new ArrayList<>();
+        StringBuilder classChars = new StringBuilder();
+        for (RegexNode node : factored) {
+            if (node.kind == Kind.CHARS) classChars.append(node.chars);
+            else if (node.kind == Kind.EMPTY) hasEmpty = true;
+            else alternatives.add(node);
+        }
+        if (classChars.length() > 0) alternatives.add(chars(classChars.toString().toCharArray()));
+
+        RegexNode result;
+        if (alternatives.isEmpty()) {
+            return hasEmpty ? empty : nothing;
+        } else if (alternatives.size() == 1) {
+            result = alternatives.get(0);
+        } else {
+            alternatives.sort(Comparator.comparingInt((RegexNode n) -> n.id));
+            result = intern(new RegexNode(Kind.UNION, null, Collections.unmodifiableList(alternatives)));
+        }
+        return hasEmpty ? optional(result) : result;
+    }
+
+    /**
+     * Zero or more repetitions.
+     */
+    public RegexNode star(RegexNode a) {
+        if (a.kind == Kind.VOID) return empty;
+        if (a.kind == Kind.EMPTY || a.kind == Kind.STAR) return a;
+        if (a.kind == Kind.PLUS || a.kind == Kind.OPTIONAL) a = a.children.get(0);
+        return intern(new RegexNode(Kind.STAR, null, Collections.singletonList(a)));
+    }
+
+    /**
+     * One or more repetitions.
+     */
+    public RegexNode plus(RegexNode a) {
+        if (a.kind == Kind.VOID || a.kind == Kind.EMPTY || a.kind == Kind.STAR || a.kind == Kind.PLUS) return a;
+        if (a.kind == Kind.OPTIONAL) return star(a.children.get(0));
+        return intern(new RegexNode(Kind.PLUS, null, Collections.singletonList(a)));
+    }
+
+    /**
+     * Zero or one occurrence.
+     */
+    public RegexNode optional(RegexNode a) {
+        if (a.kind == Kind.VOID) return empty;
+        if (a.nullable) {
+            // x? of a nullable x is x, except that (y+)? is the shorter y*
+            return a.kind == Kind.PLUS ? star(a.children.get(0)) : a;
+        }
+        if (a.kind == Kind.PLUS) return star(a.children.get(0));
+        return intern(new RegexNode(Kind.OPTIONAL, null, Collections.singletonList(a)));
+    }
+
+    /**
+     * Counted repetition x{min,max}, unrolled as x...x (x(x(x)?)?)? so that the NFA stays linear in
+     * max. All copies are the same hash-consed node, so the AST stores the operand once.
+     * @param a the repeated node
+     * @param min minimum number of occurrences
+     * @param max maximum number of occurrences, or -1 for no maximum (x{min,})
+     * @return canonical node
+     */
+    public RegexNode repeat(RegexNode a, int min, int max) {
+        if (min < 0 || (max != -1 && max < min)) {
+            throw new IllegalArgumentException("Invalid repetition {" + min + "," + max + "}");
+        }
+        List<RegexNode> parts = new ArrayList<>();
+        for (int i = 0; i < min; i++) parts.add(a);
+        if (max == -1) {
+            parts.add(star(a));
+        } else {
+            RegexNode tail = empty;
+            for (int i = min; i < max; i++) tail = optional(concat(a, tail));
+            parts.add(tail);
+        }
+        return concat(parts);
+    }
+
+    /**
+     * Case-insensitive version of a node: every character class also matches the upper and lower
+     * case of its characters. Only the classes grow, so the folded node has exactly the shape
+     * (and the NFA exactly the states) of the original. Results are memoized.
+     * @param r the node
+     * @return canonical case-folded node
+     */
+    public RegexNode ignoreCase(RegexNode r) {
+        RegexNode cached = caseFolded.get(r);
+        if (cached != null) return cached;
+        RegexNode result;
+        switch (r.kind) {
+            case VOID:
+            case EMPTY:
+                result = r;
+                break;
+            case CHARS: {
+                StringBuilder folded = new StringBuilder();
+                for (char c : r.chars) {
+                    folded.append(c).append(Character.toLowerCase(c)).append(Character.toUpperCase(c));
+                }
+                result = chars(folded.toString().toCharArray());
+                break;
+            }
+            default: {
+                List<RegexNode> children = new ArrayList<>();
+                for (RegexNode child : r.children) children.add(ignoreCase(child));
+                if (r.kind == Kind.CONCAT) result = concat(children);
+                else if (r.kind == Kind.UNION) result = union(children);
+                else if (r.kind == Kind.STAR) result = star(children.get(0));
+                else if (r.kind == Kind.PLUS) result = plus(children.get(0));
+                else result = optional(children.get(0));
+            }
+        }
+        caseFolded.put(r, result);
+        return result;
+    }
+
+    /**
+     * Brzozowski derivative of a node with respect to a character: the node matching every
+     * suffix w such that c followed by w is matched by the original node. Results are memoized.
+     * @param r the node
+     * @param c the character
+     * @return canonical derivative (VOID if no match starts with c)
+     */
+    public RegexNode derivative(RegexNode r, char c) {
+        Map<Character, RegexNode> byChar = derivatives.computeIfAbsent(r, k -> new HashMap<>());
+        RegexNode cached = byChar.get(c);
+        if (cached != null) return cached;
+        RegexNode result;
+        switch (r.kind) {
+            case VOID:
+            case EMPTY:
+                result = nothing;
+                break;
+            case CHARS:
+                result = Arrays.binarySearch(r.chars, c) >= 0 ? empty : nothing;
+                break;
+            case CONCAT: {
+                // d(r1 r2...) = d(r1) r2... | (r1 nullable ? d(r2...) : VOID)
+                RegexNode head = r.children.get(0);
+                RegexNode rest = concat(r.children.subList(1, r.children.size()));
+                RegexNode first = concat(derivative(head, c), rest);
+                result = head.nullable ? union(first, derivative(rest, c)) : first;
+                break;
+            }
+            case UNION: {
+                List<RegexNode> parts = new ArrayList<>();
+                for (RegexNode child : r.children) parts.add(derivative(child, c));
+                result = union(parts);
+                break;
+            }
+            case STAR:
+            case PLUS: {
+                // d(x*) = d(x+) = d(x) x*
+                RegexNode child = r.children.get(0);
+                result = concat(derivative(child, c), star(child));
+                break;
+            }
+            default: // OPTIONAL
+                result = derivative(r.children.get(0), c);
+        }
+        byChar.put(c, result);
+        return result;
+    }
+}
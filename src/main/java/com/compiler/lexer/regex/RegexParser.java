@@ -1,22 +1,29 @@
 package com.compiler.lexer.regex;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 
 import com.compiler.lexer.nfa.NFA;
 import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
 
 /**
  * RegexParser
  * -----------
  * This class provides functionality to convert infix regular expressions into nondeterministic finite automata (NFA)
  * using Thompson's construction algorithm. It supports standard regex operators: concatenation (·), union (|),
- * Kleene star (*), optional (?), and plus (+). The conversion process uses the Shunting Yard algorithm to transform
- * infix regex into postfix notation, then builds the corresponding NFA.
+ * Kleene star (*), optional (?), plus (+) and counted repetition ({m}, {m,}, {m,n}). The conversion process uses the Shunting Yard algorithm to transform
+ * infix regex into postfix notation, builds a simplified regex AST from it, then builds the corresponding NFA.
  *
  * Features:
  * - Parses infix regular expressions and converts them to NFA.
- * - Supports regex operators: concatenation, union, Kleene star, optional, plus.
- * - Implements Thompson's construction rules for NFA generation.
+ * - Supports regex operators: concatenation, union, Kleene star, optional, plus, counted repetition.
+ *   A '{' that does not start a well-formed repetition after an operand is an ordinary character.
+ * - Simplifies the AST before construction (see RegexNodeFactory): unions are flattened, single characters are
+ *   merged into classes, common prefixes are factored and redundant closures are removed.
+ * - Implements Thompson's construction rules for NFA generation; a character class becomes a single pair of
+ *   states, and concatenation reuses the end state of the left operand instead of adding an epsilon edge.
  *
  * Example usage:
  * <pre>
@@ -28,10 +35,60 @@ import com.compiler.lexer.nfa.State;
  * Parses regular expressions and constructs NFAs using Thompson's construction.
  */
 public class RegexParser {
+    private final RegexNodeFactory factory;
+
+    /**
+     * Builds a value of type T for each construct of a parsed expression, bottom-up; see
+     * parse(String, boolean, Visitor). Lets other passes share this parser's syntax, case folding
+     * and groups instead of parsing expressions themselves.
+     *
+     * @param <T> The type built for each subexpression.
+     */
+    public interface Visitor<T> {
+        /** A character class: one character, or its case variants when case is ignored (sorted). */
+        T chars(char[] chars);
+        /** Concatenation of two subexpressions. */
+        T concat(T left, T right);
+        /** Union of two subexpressions, left one first. */
+        T union(T left, T right);
+        /** Zero or more repetitions (*). */
+        T star(T operand);
+        /** One or more repetitions (+). */
+        T plus(T operand);
+        /** Zero or one occurrence (?). */
+        T optional(T operand);
+        /** Counted repetition {min,max}; max is -1 for {min,}. */
+        T repeat(T operand, int min, int max);
+        /** A parenthesized group, numbered from 0 in order of its opening parenthesis. */
+        T group(T body, int index);
+    }
+
+    // Builds the simplified AST; groups only bracket their body
+    private final Visitor<RegexNode> astBuilder = new Visitor<>() {
+        @Override public RegexNode chars(char[] chars) { return factory.chars(chars); }
+        @Override public RegexNode concat(RegexNode left, RegexNode right) { return factory.concat(left, right); }
+        @Override public RegexNode union(RegexNode left, RegexNode right) { return factory.union(left, right); }
+        @Override public RegexNode star(RegexNode operand) { return factory.star(operand); }
+        @Override public RegexNode plus(RegexNode operand) { return factory.plus(operand); }
+        @Override public RegexNode optional(RegexNode operand) { return factory.optional(operand); }
+        @Override public RegexNode repeat(RegexNode operand, int min, int max) { return factory.repeat(operand, min, max); }
+        @Override public RegexNode group(RegexNode body, int index) { return body; }
+    };
+
     /**
      * Default constructor for RegexParser.
      */
-    public RegexParser() {}
+    public RegexParser() {
+        this(new RegexNodeFactory());
+    }
+
+    /**
+     * Creates a parser whose ASTs are hash-consed in the given factory.
+     * @param factory factory shared with other parsers or passes
+     */
+    public RegexParser(RegexNodeFactory factory) {
+        this.factory = factory;
+    }
 
     /**
      * Converts an infix regular expression to an NFA.
@@ -40,140 +97,219 @@ public class RegexParser {
      * @return The constructed NFA.
      */
     public NFA parse(String infixRegex) {
-        // Step 1: Convert to postfix using Shunting Yard
-        String postfixRegex = ShuntingYard.toPostfix(infixRegex);
-        // Step 2: Build the NFA from the postfix expression
-        return buildNfaFromPostfix(postfixRegex);
+        return buildNfa(parseToAst(infixRegex));
     }
 
     /**
-     * Builds an NFA from a postfix regular expression.
+     * Converts an infix regular expression to a simplified AST.
      *
-     * @param postfixRegex The regular expression in postfix notation.
+     * @param infixRegex The regular expression in infix notation.
+     * @return The canonical AST node.
+     */
+    public RegexNode parseToAst(String infixRegex) {
+        return parse(infixRegex, false, astBuilder);
+    }
+
+    /**
+     * Converts an infix regular expression to a simplified AST, optionally case-insensitive.
+     * Case folding widens the character classes (see RegexNodeFactory.ignoreCase) instead of
+     * adding alternatives, so the NFA has as many states as for the expression as written.
+     *
+     * @param infixRegex The regular expression in infix notation.
+     * @param ignoreCase True to match letters in any case.
+     * @return The canonical AST node.
+     */
+    public RegexNode parseToAst(String infixRegex, boolean ignoreCase) {
+        RegexNode ast = parseToAst(infixRegex);
+        return ignoreCase ? factory.ignoreCase(ast) : ast;
+    }
+
+    /**
+     * Builds an NFA from an AST with Thompson's construction. Only the end state is final.
+     *
+     * @param ast The AST to convert.
      * @return The constructed NFA.
      */
-    private NFA buildNfaFromPostfix(String postfixRegex) {
-        Stack<NFA> nfaStack = new Stack<>();
+    public NFA buildNfa(RegexNode ast) {
+        NFA result = build(ast);
+        result.endState.isFinal = true;
+        return result;
+    }
+
+    /**
+     * Parses an infix regular expression and builds its value bottom-up with a visitor: the
+     * expression is converted to postfix with the Shunting Yard algorithm, then each operand and
+     * operator of the postfix form is passed to the visitor, and each group once its body is built.
+     *
+     * @param infixRegex The regular expression in infix notation.
+     * @param ignoreCase True to pass each letter with its case variants (see RegexNodeFactory.ignoreCase).
+     * @param visitor Builds the value of each subexpression.
+     * @param <T> The type built for each subexpression.
+     * @return The value of the whole expression.
+     */
+    public <T> T parse(String infixRegex, boolean ignoreCase, Visitor<T> visitor) {
+        List<int[]> groupEnds = new ArrayList<>();
+        String postfixRegex = ShuntingYard.toPostfix(infixRegex, groupEnds);
+        Stack<T> stack = new Stack<>();
+        int nextGroup = 0;
 
-        for (char c : postfixRegex.toCharArray()) {
-            if (isOperand(c)) {
-                NFA nfa = createNfaForCharacter(c);
-                nfaStack.push(nfa);
+        for (int i = 0; i < postfixRegex.length(); i++) {
+            char c = postfixRegex.charAt(i);
+            int bound = stack.isEmpty() ? 0 : ShuntingYard.boundLength(postfixRegex, i);
+            if (bound > 0) {
+                int[] minMax = ShuntingYard.parseBound(postfixRegex.substring(i, i + bound));
+                stack.push(visitor.repeat(stack.pop(), minMax[0], minMax[1]));
+                i += bound - 1;
+            } else if (isOperand(c)) {
+                RegexNode single = factory.character(c);
+                stack.push(visitor.chars((ignoreCase ? factory.ignoreCase(single) : single).getChars()));
             } else if (c == '·') {
-                handleConcatenation(nfaStack);
+                T right = stack.pop();
+                stack.push(visitor.concat(stack.pop(), right));
             } else if (c == '|') {
-                handleUnion(nfaStack);
+                T right = stack.pop();
+                stack.push(visitor.union(stack.pop(), right));
             } else if (c == '*') {
-                handleKleeneStar(nfaStack);
+                stack.push(visitor.star(stack.pop()));
             } else if (c == '?') {
-                handleOptional(nfaStack);
+                stack.push(visitor.optional(stack.pop()));
             } else if (c == '+') {
-                handlePlus(nfaStack);
+                stack.push(visitor.plus(stack.pop()));
+            }
+            // Groups closing here wrap the operand just built, innermost first
+            while (nextGroup < groupEnds.size() && groupEnds.get(nextGroup)[0] == i + 1) {
+                stack.push(visitor.group(stack.pop(), groupEnds.get(nextGroup++)[1]));
             }
         }
 
-        NFA result = nfaStack.pop();
-        result.endState.isFinal = true;
-        return result;
+        return stack.pop();
+    }
+
+    /**
+     * Recursively builds the Thompson fragment of a node. Fragment start states have no incoming
+     * transitions and end states have no outgoing ones, which lets concatenation merge them.
+     * @param node The AST node.
+     * @return Fragment with a non-final end state.
+     */
+    private NFA build(RegexNode node) {
+        switch (node.kind) {
+            case VOID:
+                // No path from start to end
+                return new NFA(new State(), new State());
+            case EMPTY: {
+                State start = new State();
+                State end = new State();
+                start.transitions.add(new Transition(null, end));
+                return new NFA(start, end);
+            }
+            case CHARS:
+                return createNfaForCharacters(node.chars);
+            case CONCAT:
+                return handleConcatenation(node);
+            case UNION:
+                return handleUnion(node);
+            case STAR:
+                return handleKleeneStar(build(node.children.get(0)));
+            case PLUS:
+                return handlePlus(build(node.children.get(0)));
+            default:
+                return handleOptional(build(node.children.get(0)));
+        }
     }
 
     /**
      * Handles the '?' operator (zero or one occurrence).
-     * Pops an NFA from the stack and creates a new NFA that accepts zero or one occurrence.
-     * @param stack The NFA stack.
+     * Creates a new NFA that accepts zero or one occurrence of the given fragment.
+     * @param nfa The operand fragment.
+     * @return The new fragment.
      */
-    private void handleOptional(Stack<NFA> stack) {
-        NFA nfa = stack.pop();
+    private NFA handleOptional(NFA nfa) {
         State start = new State();
         State end = new State();
-        start.transitions.add(new com.compiler.lexer.nfa.Transition(null, nfa.startState));
-        start.transitions.add(new com.compiler.lexer.nfa.Transition(null, end));
-        nfa.endState.isFinal = false;
-        nfa.endState.transitions.add(new com.compiler.lexer.nfa.Transition(null, end));
-        end.isFinal = true;
-        stack.push(new NFA(start, end));
+        start.transitions.add(new Transition(null, nfa.startState));
+        start.transitions.add(new Transition(null, end));
+        nfa.endState.transitions.add(new Transition(null, end));
+        return new NFA(start, end);
     }
 
     /**
      * Handles the '+' operator (one or more occurrences).
-     * Pops an NFA from the stack and creates a new NFA that accepts one or more occurrences.
-     * @param stack The NFA stack.
+     * Creates a new NFA that accepts one or more occurrences of the given fragment.
+     * @param nfa The operand fragment.
+     * @return The new fragment.
      */
-    private void handlePlus(Stack<NFA> stack) {
-        NFA nfa = stack.pop();
+    private NFA handlePlus(NFA nfa) {
         State start = new State();
         State end = new State();
-        start.transitions.add(new com.compiler.lexer.nfa.Transition(null, nfa.startState));
-        nfa.endState.isFinal = false;
-        nfa.endState.transitions.add(new com.compiler.lexer.nfa.Transition(null, nfa.startState));
-        nfa.endState.transitions.add(new com.compiler.lexer.nfa.Transition(null, end));
-        end.isFinal = true;
-        stack.push(new NFA(start, end));
+        start.transitions.add(new Transition(null, nfa.startState));
+        nfa.endState.transitions.add(new Transition(null, nfa.startState));
+        nfa.endState.transitions.add(new Transition(null, end));
+        return new NFA(start, end);
     }
-    
+
     /**
-     * Creates an NFA for a single character.
-     * @param c The character to create an NFA for.
+     * Creates an NFA for a character class: one transition per character between two states.
+     * @param chars The characters to create an NFA for.
      * @return The constructed NFA.
      */
-    private NFA createNfaForCharacter(char c) {
+    private NFA createNfaForCharacters(char[] chars) {
         State start = new State();
         State end = new State();
-        start.transitions.add(new com.compiler.lexer.nfa.Transition(c, end));
-        end.isFinal = true;
+        for (char c : chars) {
+            start.transitions.add(new Transition(c, end));
+        }
         return new NFA(start, end);
     }
 
     /**
      * Handles the concatenation operator (·).
-     * Pops two NFAs from the stack and connects them in sequence.
-     * @param stack The NFA stack.
+     * Connects the children in sequence; the end state of each fragment takes over the transitions
+     * of the next fragment's start state, so no epsilon edge is needed between them.
+     * @param node The CONCAT node.
+     * @return The new fragment.
      */
-    private void handleConcatenation(Stack<NFA> stack) {
-        NFA nfa2 = stack.pop();
-        NFA nfa1 = stack.pop();
-        nfa1.endState.isFinal = false;
-        nfa1.endState.transitions.add(new com.compiler.lexer.nfa.Transition(null, nfa2.startState));
-        nfa2.endState.isFinal = true;
-        stack.push(new NFA(nfa1.startState, nfa2.endState));
+    private NFA handleConcatenation(RegexNode node) {
+        NFA first = build(node.children.get(0));
+        State end = first.endState;
+        for (int i = 1; i < node.children.size(); i++) {
+            NFA next = build(node.children.get(i));
+            end.transitions.addAll(next.startState.transitions);
+            end = next.endState;
+        }
+        return new NFA(first.startState, end);
     }
 
     /**
      * Handles the union operator (|).
-     * Pops two NFAs from the stack and creates a new NFA that accepts either.
-     * @param stack The NFA stack.
+     * Creates a new NFA that accepts any of the children.
+     * @param node The UNION node.
+     * @return The new fragment.
      */
-    private void handleUnion(Stack<NFA> stack) {
-        NFA nfa2 = stack.pop();
-        NFA nfa1 = stack.pop();
+    private NFA handleUnion(RegexNode node) {
         State start = new State();
         State end = new State();
-        start.transitions.add(new com.compiler.lexer.nfa.Transition(null, nfa1.startState));
-        start.transitions.add(new com.compiler.lexer.nfa.Transition(null, nfa2.startState));
-        nfa1.endState.isFinal = false;
-        nfa2.endState.isFinal = false;
-        nfa1.endState.transitions.add(new com.compiler.lexer.nfa.Transition(null, end));
-        nfa2.endState.transitions.add(new com.compiler.lexer.nfa.Transition(null, end));
-        end.isFinal = true;
-        stack.push(new NFA(start, end));
+        for (RegexNode child : node.children) {
+            NFA nfa = build(child);
+            start.transitions.add(new Transition(null, nfa.startState));
+            nfa.endState.transitions.add(new Transition(null, end));
+        }
+        return new NFA(start, end);
     }
 
     /**
      * Handles the Kleene star operator (*).
-     * Pops an NFA from the stack and creates a new NFA that accepts zero or more repetitions.
-     * @param stack The NFA stack.
+     * Creates a new NFA that accepts zero or more repetitions of the given fragment.
+     * @param nfa The operand fragment.
+     * @return The new fragment.
      */
-    private void handleKleeneStar(Stack<NFA> stack) {
-        NFA nfa = stack.pop();
+    private NFA handleKleeneStar(NFA nfa) {
         State start = new State();
         State end = new State();
-        start.transitions.add(new com.compiler.lexer.nfa.Transition(null, nfa.startState));
-        start.transitions.add(new com.compiler.lexer.nfa.Transition(null, end));
-        nfa.endState.isFinal = false;
-        nfa.endState.transitions.add(new com.compiler.lexer.nfa.Transition(null, nfa.startState));
-        nfa.endState.transitions.add(new com.compiler.lexer.nfa.Transition(null, end));
-        end.isFinal = true;
-        stack.push(new NFA(start, end));
+        start.transitions.add(new Transition(null, nfa.startState));
+        start.transitions.add(new Transition(null, end));
+        nfa.endState.transitions.add(new Transition(null, nfa.startState));
+        nfa.endState.transitions.add(new Transition(null, end));
+        return new NFA(start, end);
     }
 
     /**
@@ -184,4 +320,4 @@ public class RegexParser {
     private boolean isOperand(char c) {
         return c != '·' && c != '|' && c != '*' && c != '?' && c != '+';
     }
-}
\ No newline at end of file
+}
@@ -17,35 +17,79 @@ public class ShuntingYard {
     /**
      * Inserts the explicit concatenation operator ('·') into the regular expression according to standard rules.
      * This makes implicit concatenations explicit, simplifying later parsing.
+     * Counted repetitions ({m}, {m,}, {m,n}) are postfix operators and are copied as a whole.
      *
      * @param regex Input regular expression (may have implicit concatenation).
      * @return Regular expression with explicit concatenation operators.
      */
     public static String insertConcatenationOperator(String regex) {
         StringBuilder output = new StringBuilder();
+        boolean previousEndsOperand = false;
 
-        for (int i = 0; i < regex.length(); i++) {
+        for (int i = 0; i < regex.length(); ) {
             char currentChar = regex.charAt(i);
-            output.append(currentChar);
-
-            // Do not insert at the end of the string
-            if (i + 1 >= regex.length()) {
-                break;
+            int bound = previousEndsOperand ? boundLength(regex, i) : 0;
+            if (bound > 0) {
+                output.append(regex, i, i + bound);
+                i += bound;
+                continue;
             }
 
-            char nextChar = regex.charAt(i + 1);
-
-            boolean isCurrentOperand = isOperand(currentChar) || currentChar == '*' || currentChar == '?' || currentChar == '+' || currentChar == ')';
-            boolean isNextOperand = isOperand(nextChar) || nextChar == '(';
-
-            if (isCurrentOperand && isNextOperand) {
+            boolean isCurrentOperandStart = isOperand(currentChar) || currentChar == '(';
+            if (previousEndsOperand && isCurrentOperandStart) {
                 output.append('·');
             }
+            output.append(currentChar);
+            previousEndsOperand = isOperand(currentChar) || currentChar == '*' || currentChar == '?' || currentChar == '+' || currentChar == ')';
+            i++;
         }
 
         return output.toString();
     }
 
+    /**
+     * Returns the length of the counted repetition ({m}, {m,} or {m,n}) starting at index i,
+     * or 0 if there is none. A '{' that does not start one is an ordinary operand.
+     *
+     * @param regex Regular expression.
+     * @param i Index to look at.
+     * @return Length of the repetition operator including the braces, or 0.
+     */
+    static int boundLength(String regex, int i) {
+        if (i >= regex.length() || regex.charAt(i) != '{') return 0;
+        int j = i + 1;
+        int digits = 0;
+        while (j < regex.length() && Character.isDigit(regex.charAt(j))) { j++; digits++; }
+        if (digits == 0 || j >= regex.length()) return 0;
+        if (regex.charAt(j) == ',') {
+            j++;
+            while (j < regex.length() && Character.isDigit(regex.charAt(j))) j++;
+        }
+        if (j >= regex.length() || regex.charAt(j) != '}') return 0;
+        return j + 1 - i;
+    }
+
+    /**
+     * Parses a counted repetition returned by boundLength into {min, max}; max is -1 for {m,}.
+     *
+     * @param bound Repetition operator including the braces.
+     * @return The bounds.
+     */
+    static int[] parseBound(String bound) {
+        String body = bound.substring(1, bound.length() - 1);
+        int comma = body.indexOf(',');
+        if (comma == -1) {
+            int n = Integer.parseInt(body);
+            return new int[] { n, n };
+        }
+        int min = Integer.parseInt(body.substring(0, comma));
+        int max = comma == body.length() - 1 ? -1 : Integer.parseInt(body.substring(comma + 1));
+        if (max != -1 && max < min) {
+            throw new IllegalArgumentException("Invalid repetition " + bound + ": maximum is smaller than minimum");
+        }
+        return new int[] { min, max };
+    }
+
     /**
      * Determines if the given character is an operand (not an operator or parenthesis).
      *
@@ -64,6 +108,19 @@ public class ShuntingYard {
      * @return Regular expression in postfix notation.
      */
     public static String toPostfix(String infixRegex) {
+        return toPostfix(infixRegex, null);
+    }
+
+    /**
+     * Converts an infix regular expression to postfix notation, recording where each group ends.
+     *
+     * @param infixRegex Regular expression in infix notation.
+     * @param groupEnds If not null, receives one {postfix length, group index} pair per closing parenthesis,
+     *        in the order they close: the group's expression is the last operand of the postfix prefix of
+     *        that length. Groups are numbered from 0 in order of their opening parenthesis.
+     * @return Regular expression in postfix notation.
+     */
+    static String toPostfix(String infixRegex, java.util.List<int[]> groupEnds) {
         java.util.Map<Character, Integer> precedence = new java.util.HashMap<>();
         precedence.put('|', 1);
         precedence.put('·', 2);
@@ -73,16 +130,28 @@ public class ShuntingYard {
 
         StringBuilder output = new StringBuilder();
         java.util.Stack<Character> operatorStack = new java.util.Stack<>();
+        java.util.Stack<Integer> openGroups = new java.util.Stack<>();
+        int groups = 0;
 
         String preprocessedRegex = insertConcatenationOperator(infixRegex);
 
         for (int i = 0; i < preprocessedRegex.length(); i++) {
             char c = preprocessedRegex.charAt(i);
 
-            if (isOperand(c)) {
+            int bound = i > 0 && "·(|".indexOf(preprocessedRegex.charAt(i - 1)) == -1 ? boundLength(preprocessedRegex, i) : 0;
+            if (bound > 0) {
+                // Counted repetition: a postfix operator with the precedence of '*'
+                while (!operatorStack.isEmpty() && operatorStack.peek() != '('
+                        && precedence.getOrDefault(operatorStack.peek(), 0) >= 3) {
+                    output.append(operatorStack.pop());
+                }
+                output.append(preprocessedRegex, i, i + bound);
+                i += bound - 1;
+            } else if (isOperand(c)) {
                 output.append(c);
             } else if (c == '(') {
                 operatorStack.push(c);
+                openGroups.push(groups++);
             } else if (c == ')') {
                 while (!operatorStack.isEmpty() && operatorStack.peek() != '(') {
                     output.append(operatorStack.pop());
@@ -90,6 +159,10 @@ public class ShuntingYard {
                 if (!operatorStack.isEmpty()) {
                     operatorStack.pop(); // Discard '('
                 }
+                if (!openGroups.isEmpty()) {
+                    int group = openGroups.pop();
+                    if (groupEnds != null) groupEnds.add(new int[] { output.length(), group });
+                }
             } else { // Is an operator
                 while (!operatorStack.isEmpty() && operatorStack.peek() != '('
                         && precedence.getOrDefault(operatorStack.peek(), 0) >= precedence.getOrDefault(c, 0)) {
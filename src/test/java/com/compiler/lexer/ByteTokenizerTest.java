@@ -0,0 +1,77 @@
+package com.compiler.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ByteTokenizerTest {
+    @Test
+    public void testUtf8InputMatchesCharTokenizer(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b|n|o|é|ñ|日)+;WORD;keywords=KEYWORD:año",
+            "(0|1|2)+;NUMBER",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines, StandardCharsets.UTF_8);
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', 'n', 'o', 'é', 'ñ', '日', '0', '1', '2', ' '));
+
+        LexerDefinition chars = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        LexerDefinition bytes = LexerBuilder.buildByteLexerDefinitionFromFile(tokensFile, alphabet);
+        for (char c : bytes.alphabet) assertTrue(c <= 0xFF);
+
+        String text = "abé 12 año 日日x béé";
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        List<Token> expected = new Tokenizer(chars).tokenize(text);
+        List<Token> actual = new ByteTokenizer(bytes).tokenize(encoded);
+        assertEquals(expected, actual);
+        assertEquals(Arrays.asList("WORD", "NUMBER", "KEYWORD", "WORD", "UNKNOWN", "WORD"),
+            actual.stream().map(t -> t.type).toList());
+
+        // Offsets are byte offsets: "abé" is 4 bytes, the CJK word starts after "abé 12 año "
+        assertEquals(4, actual.get(0).end);
+        assertEquals(13, actual.get(3).start);
+        assertEquals(19, actual.get(3).end);
+
+        // Direct buffers and array slices give the same tokens, relative to the region start
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length + 3);
+        direct.put(new byte[] { 'x', 'x', ' ' }).put(encoded).flip().position(3);
+        assertEquals(actual, new ByteTokenizer(bytes).tokenize(direct));
+        assertEquals(3, direct.position());
+        assertEquals(actual.get(3).start, new ByteTokenizer(bytes).tokenize(direct).get(3).start);
+        byte[] padded = ("zz" + text).getBytes(StandardCharsets.UTF_8);
+        assertEquals(4, new ByteTokenizer(bytes).tokenize(padded, 2, encoded.length).get(0).end);
+
+        // Keywords are matched on their bytes and keep the declared string
+        ByteTokenizer lexer = new ByteTokenizer(bytes);
+        assertSame(lexer.tokenize(encoded).get(2).lexeme, lexer.tokenize(encoded).get(2).lexeme);
+    }
+
+    @Test
+    public void testValueAndGroupRulesAreRejected(@TempDir Path temp) throws Exception {
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', '0', '1'));
+        Path values = temp.resolve("values.txt");
+        Files.write(values, Arrays.asList("a+;WORD", "(0|1)+;INT;value=int"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> LexerBuilder.buildByteLexerDefinitionFromFile(values.toString(), alphabet));
+        assertTrue(e.getMessage().contains("value=int"), e.getMessage());
+
+        Path groups = temp.resolve("groups.txt");
+        Files.write(groups, Arrays.asList("a((0|1)+);NUM;groups=digits"));
+        e = assertThrows(IllegalArgumentException.class,
+            () -> LexerBuilder.buildByteLexerDefinitionFromFile(groups.toString(), alphabet));
+        assertTrue(e.getMessage().contains("capture groups"), e.getMessage());
+    }
+}
@@ -0,0 +1,61 @@
+package com.compiler.lexer;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class KeywordTableTest {
+    @Test
+    public void testEveryKeywordHasItsOwnSlot() {
+        Map<String, String> keywords = new LinkedHashMap<>();
+        for (int i = 0; i < 500; i++) keywords.put("kw" + Integer.toString(i, 36), i % 2 == 0 ? "EVEN" : "ODD");
+        KeywordTable table = new KeywordTable(keywords);
+        assertEquals(500, table.size());
+
+        boolean[] used = new boolean[500];
+        for (Map.Entry<String, String> e : keywords.entrySet()) {
+            String text = "  " + e.getKey() + "  ";
+            int slot = table.find(text, 2, text.length() - 2);
+            assertEquals(e.getKey(), table.keyword(slot));
+            assertEquals(e.getValue(), table.type(slot));
+            assertEquals(false, used[slot]);
+            used[slot] = true;
+        }
+        assertEquals(-1, table.find("kw", 0, 2));
+        assertEquals(-1, table.find("kwzzzz", 0, 6));
+        assertEquals(-1, table.find("", 0, 0));
+    }
+
+    @Test
+    public void testEmptyTable() {
+        KeywordTable table = new KeywordTable(new LinkedHashMap<>());
+        assertEquals(0, table.size());
+        assertEquals(-1, table.find("if", 0, 2));
+    }
+
+    @Test
+    public void testKeywordsWithJsonSyntaxSurviveSaveAndLoad(@TempDir Path temp) throws Exception {
+        Map<String, String> keywords = new LinkedHashMap<>();
+        keywords.put("]", "KW");
+        keywords.put("a,b", "KW");
+        keywords.put("if then", "KEY WORD");
+        keywords.put("\\\"[", "KW");
+        LexerDefinition def = new LexerDefinition.Builder(List.of('a', ']', ' '), 0, new int[][] { { 1, 1, -1 }, { 1, 1, -1 } },
+                new boolean[] { false, true }, new String[] { null, "WORD, ]" })
+            .skipTypes(Set.of("S ]"))
+            .keywordTables(Map.of("WORD, ]", new KeywordTable(keywords)))
+            .valueDecoders(Map.of("V,]", ValueDecoder.INT))
+            .build();
+        String file = temp.resolve("lexer.json").toString();
+        def.saveToFile(file);
+        LexerDefinition loaded = LexerDefinition.loadFromFile(file);
+        assertEquals(def, loaded);
+        assertEquals(keywords, loaded.keywordTables.get("WORD, ]").entries());
+    }
+}
@@ -1,6 +1,7 @@
 package com.compiler.lexer;
 
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -9,7 +10,12 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.compiler.lexer.nfa.NFA;
 
 
 public class LexerBuilderTest {
@@ -43,6 +49,90 @@ public class LexerBuilderTest {
         Files.deleteIfExists(Paths.get(tokensFile));
     }
 
+    @Test
+    public void testDerivativeBuilderMatchesSubsetConstruction(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t|u|v|w|x|y|z|_)(a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t|u|v|w|x|y|z|_|0|1|2|3|4|5|6|7|8|9)*;IDENTIFIER",
+            "(0|1|2|3|4|5|6|7|8|9)+(.(0|1|2|3|4|5|6|7|8|9)+)?;NUMBER",
+            "if|else|while|int|in;KEYWORD",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+
+        Set<Character> alphabet = new HashSet<>();
+        for (char c = '0'; c <= '9'; c++) alphabet.add(c);
+        for (char c = 'a'; c <= 'z'; c++) alphabet.add(c);
+        alphabet.add('_');
+        alphabet.add('.');
+        alphabet.add(' ');
+
+        LexerDefinition subset = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        LexerDefinition derivatives = LexerBuilder.buildLexerDefinitionWithDerivatives(tokensFile, alphabet);
+        assertEquals("KEYWORD", simulateTable(derivatives, "while"));
+        assertEquals("IDENTIFIER", simulateTable(derivatives, "whilex"));
+        assertEquals("NUMBER", simulateTable(derivatives, "3.14"));
+        assertEquals(null, simulateTable(derivatives, "3."));
+        assertEquals(subset.skipTypes, derivatives.skipTypes);
+        assertTrue(derivatives.transitions.length <= subset.transitions.length);
+
+        String input = "int x_1 in 42 while 3.14 iff else9 .";
+        assertEquals(new Tokenizer(subset).tokenize(input), new Tokenizer(derivatives).tokenize(input));
+    }
+
+    @Test
+    public void testCharacterClassesShrinkTable(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t|u|v|w|x|y|z)(a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t|u|v|w|x|y|z|0|1|2|3|4|5|6|7|8|9)*;IDENTIFIER",
+            "(0|1|2|3|4|5|6|7|8|9)+;NUMBER",
+            "if|int;KEYWORD"
+        );
+        Files.write(Path.of(tokensFile), lines);
+        Set<Character> alphabet = new HashSet<>();
+        for (char c = '0'; c <= '9'; c++) alphabet.add(c);
+        for (char c = 'a'; c <= 'z'; c++) alphabet.add(c);
+
+        // Classes: digits, i, f, n, t and the other letters
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        assertEquals(6, def.columnCount());
+        assertEquals(6, def.transitions[0].length);
+        assertEquals(def.alphabetIndex('a'), def.alphabetIndex('z'));
+        assertEquals(def.alphabetIndex('0'), def.alphabetIndex('9'));
+        assertEquals(-1, def.alphabetIndex('A'));
+        assertEquals("KEYWORD", simulateTable(def, "int"));
+        assertEquals("IDENTIFIER", simulateTable(def, "inta"));
+        assertEquals("NUMBER", simulateTable(def, "42"));
+        assertEquals(6, LexerBuilder.buildLexerDefinitionWithDerivatives(tokensFile, alphabet).columnCount());
+    }
+
+    @Test
+    public void testBudgetFallbackReportsRules(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(c|d)+;WORD",
+            "(a|b)*a(a|b)(a|b)(a|b)(a|b)c;FIFTH",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', 'c', 'd', ' '));
+
+        DfaBudget budget = new DfaBudget(16, 1L << 20);
+        assertThrows(DfaBudgetExceededException.class, () -> NfaToDfaConverter.convertNfaToDfa(
+            NfaOptimizer.optimize(NFA.union(LexerBuilder.buildNfasFromRules(LexerBuilder.readRulesFromFile(tokensFile)))), alphabet, budget));
+
+        HybridLexer lexer = LexerBuilder.buildHybridLexerFromFile(tokensFile, alphabet, budget);
+        assertEquals(1, lexer.getFallbackRules().size());
+        assertEquals("FIFTH", lexer.getFallbackRules().get(0).tokenTypeName);
+        assertTrue(lexer.getWarnings().get(0).contains("FIFTH"), lexer.getWarnings().get(0));
+        assertTrue(lexer.definition.transitions.length <= 16);
+
+        // Same tokens as the full DFA
+        String input = "cd abba abbbbc dc babaabbc";
+        LexerDefinition full = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        assertEquals(new Tokenizer(full).tokenize(input), new Tokenizer(lexer).tokenize(input));
+    }
+
     // Simula el DFA sobre la entrada y retorna el tokenTypeName del estado final alcanzado
 
     private String simulateTable(com.compiler.lexer.LexerDefinition def, String input) {
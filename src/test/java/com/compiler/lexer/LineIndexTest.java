@@ -0,0 +1,39 @@
+package com.compiler.lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class LineIndexTest {
+    @Test
+    public void testLineAndColumnLookup() {
+        String input = "ab\ncde\r\n\nf";
+        LineIndex lines = LineIndex.of(input);
+        assertEquals(4, lines.lineCount());
+        assertEquals(1, lines.line(0));
+        assertEquals(2, lines.column(1));
+        assertEquals(1, lines.line(2)); // the '\n' itself belongs to line 1
+        assertEquals(2, lines.line(3));
+        assertEquals(1, lines.column(3));
+        assertEquals(3, lines.line(8));
+        assertEquals(4, lines.line(9));
+        assertEquals(2, lines.column(10)); // end of input
+        assertEquals(9, lines.lineStart(4));
+
+        // Same answers for a non-String CharSequence
+        LineIndex fromBuilder = LineIndex.of(new StringBuilder(input));
+        for (int i = 0; i <= input.length(); i++) {
+            assertEquals(lines.line(i), fromBuilder.line(i));
+            assertEquals(lines.column(i), fromBuilder.column(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.line(11));
+    }
+
+    @Test
+    public void testTokenPositions() {
+        Token t = new Token("IDENTIFIER", "cde", 3, 6);
+        LineIndex lines = LineIndex.of("ab\ncde\n");
+        assertEquals(2, t.line(lines));
+        assertEquals(1, t.column(lines));
+    }
+}
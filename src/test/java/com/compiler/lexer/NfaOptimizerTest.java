@@ -0,0 +1,107 @@
+package com.compiler.lexer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.DfaState;
+import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
+
+public class NfaOptimizerTest {
+    @Test
+    public void testOptimizedNfaKeepsTokensAndDropsEpsilons() {
+        List<NFA> nfas = Arrays.asList(
+            rule("(a|b)*c+", "ABC", 2),
+            rule("d(e|f)g*", "DEFG", 1),
+            rule("de", "DE", 0)
+        );
+        NFA combined = NFA.union(nfas);
+        int before = countStates(combined.startState);
+        NFA optimized = NfaOptimizer.optimize(combined);
+        int after = countStates(optimized.startState);
+        assertTrue(after < before, "expected fewer states: " + after + " vs " + before);
+        forEachState(optimized.startState, s -> {
+            for (Transition t : s.transitions) assertTrue(t.symbol != null, "epsilon transition left");
+        });
+
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', 'c', 'd', 'e', 'f', 'g'));
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(optimized, alphabet);
+        assertEquals("ABC", simulateDfa(dfa, "abaccc"));
+        assertEquals("DE", simulateDfa(dfa, "de"));
+        assertEquals("DEFG", simulateDfa(dfa, "dfgg"));
+        assertEquals("DEFG", simulateDfa(dfa, "deg"));
+        assertNull(simulateDfa(dfa, "d"));
+        assertNull(simulateDfa(dfa, "ab"));
+    }
+
+    @Test
+    public void testLiteralRulesShareATrie() {
+        String[] literals = { "=", "==", "===", "!=", "!==", "<", "<=", "<<", "<<=", "=" };
+        List<NFA> nfas = new ArrayList<>();
+        for (int i = 0; i < literals.length; i++) nfas.add(rule(literals[i], "OP" + i, literals.length - i));
+        nfas.add(rule("(a|b)+", "WORD", 0));
+        NFA combined = NFA.union(nfas);
+
+        // Only the non-literal rule hangs off the start state through an epsilon transition
+        assertEquals(1, combined.startState.getEpsilonTransitions().size());
+        // One trie state per distinct prefix, plus the start state
+        int trieStates = countStates(combined.startState) - countStates(nfas.get(nfas.size() - 1).startState);
+        assertEquals(11, trieStates);
+
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('=', '!', '<', 'a', 'b'));
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(NfaOptimizer.optimize(combined), alphabet);
+        assertEquals("OP9", simulateDfa(dfa, "=")); // duplicate literal: the later rule wins
+        assertEquals("OP2", simulateDfa(dfa, "==="));
+        assertEquals("OP8", simulateDfa(dfa, "<<="));
+        assertEquals("WORD", simulateDfa(dfa, "abba"));
+        assertNull(simulateDfa(dfa, "!"));
+    }
+
+    private NFA rule(String regex, String type, int priority) {
+        NFA nfa = LexerBuilder.buildNfaFromRegex(regex);
+        nfa.endState.setFinal(type, priority);
+        return nfa;
+    }
+
+    private String simulateDfa(DFA dfa, String input) {
+        DfaState state = dfa.startState;
+        for (char c : input.toCharArray()) {
+            state = state.getTransition(c);
+            if (state == null) return null;
+        }
+        return state.isFinal ? state.tokenTypeName : null;
+    }
+
+    private int countStates(State start) {
+        int[] count = { 0 };
+        forEachState(start, s -> count[0]++);
+        return count[0];
+    }
+
+    private void forEachState(State start, Consumer<State> action) {
+        Set<State> seen = new HashSet<>();
+        Deque<State> stack = new ArrayDeque<>();
+        seen.add(start);
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            State s = stack.pop();
+            action.accept(s);
+            for (Transition t : s.transitions) {
+                if (seen.add(t.toState)) stack.push(t.toState);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.compiler.lexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OffHeapTokenStoreTest {
+    @TempDir
+    Path temp;
+
+    @Test
+    public void testStoresMatchHeapBufferAcrossChunks() throws Exception {
+        Path tokensFile = temp.resolve("tokens.txt");
+        Files.write(tokensFile, Arrays.asList("(a|b)+;WORD", "(0|1)+;INT;value=int", "( )+;WS;skip"));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile.toString(), new HashSet<>(Arrays.asList('a', 'b', '0', '1', ' ')));
+        Tokenizer tokenizer = new Tokenizer(def);
+        String text = "ab 101 ? ".repeat(25_000); // 75,000 tokens: more than one chunk
+
+        TokenBuffer expected = tokenizer.tokenizeToBuffer(text);
+        try (OffHeapTokenStore direct = tokenizer.tokenizeInto(text, OffHeapTokenStore.direct(text));
+             OffHeapTokenStore mapped = tokenizer.tokenizeInto(text, OffHeapTokenStore.mapped(text, temp))) {
+            for (TokenStore store : new TokenStore[] { direct, mapped }) {
+                assertEquals(expected.size(), store.size());
+                for (int i = 0; i < expected.size(); i += 997) {
+                    assertEquals(expected.type(i), store.type(i));
+                    assertEquals(expected.start(i), store.start(i));
+                    assertEquals(expected.end(i), store.end(i));
+                    assertEquals(expected.longValue(i), store.longValue(i));
+                }
+                int last = store.size() - 1;
+                assertEquals(expected.token(last), store.token(last));
+                assertEquals(101, store.longValue(70_000)); // INT in the second chunk
+                assertThrows(IndexOutOfBoundsException.class, () -> store.start(store.size()));
+            }
+        }
+        try (Stream<Path> files = Files.list(temp)) {
+            assertEquals(1, files.count()); // the mapped store's file is gone, tokens.txt remains
+        }
+    }
+}
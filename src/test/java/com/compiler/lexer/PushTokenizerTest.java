@@ -0,0 +1,87 @@
+package com.compiler.lexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PushTokenizerTest {
+    @Test
+    public void testAnyChunkingMatchesWholeInput(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b)+;WORD;keywords=KEYWORD:ab",
+            "a(b*)c;ABC;groups=bs",
+            "(0|1)+;NUMBER",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile,
+            new HashSet<>(Arrays.asList('a', 'b', 'c', '0', '1', ' ')));
+        String text = "ab abbbc  abbb 0110 xy? ba abc1";
+
+        for (boolean coalesce : new boolean[] { false, true }) {
+            Tokenizer whole = new Tokenizer(def);
+            whole.setCoalesceUnknown(coalesce);
+            List<Token> expected = whole.tokenize(text);
+            char[] chars = text.toCharArray();
+            for (int size = 1; size <= chars.length; size++) {
+                List<Token> actual = new ArrayList<>();
+                PushTokenizer push = new PushTokenizer(def, actual::add);
+                push.setCoalesceUnknown(coalesce);
+                for (int off = 0; off < chars.length; off += size) {
+                    push.feed(chars, off, Math.min(size, chars.length - off));
+                }
+                push.finish();
+                assertEquals(expected, actual, "chunk size " + size);
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).start, actual.get(i).start);
+                    assertEquals(expected.get(i).end, actual.get(i).end);
+                    assertEquals(expected.get(i).groupCount(), actual.get(i).groupCount());
+                    for (int g = 0; g < expected.get(i).groupCount(); g++) {
+                        assertEquals(expected.get(i).groupStart(g), actual.get(i).groupStart(g));
+                        assertEquals(expected.get(i).groupEnd(g), actual.get(i).groupEnd(g));
+                    }
+                }
+            }
+        }
+
+        // Tokens are emitted as soon as they are maximal, before the stream ends
+        List<Token> seen = new ArrayList<>();
+        PushTokenizer push = new PushTokenizer(def, seen::add);
+        push.feed("ab ab".toCharArray(), 0, 5);
+        assertEquals(Arrays.asList(new Token("KEYWORD", "ab")), seen);
+        push.feed("bc".toCharArray(), 0, 2);
+        assertEquals(new Token("ABC", "abbc", 3, 7), seen.get(1));
+        push.finish();
+        assertEquals(2, seen.size());
+    }
+
+    @Test
+    public void testLongUnknownRunIsSplit(@TempDir Path temp) throws Exception {
+        Path tokensFile = temp.resolve("tokens.txt");
+        Files.write(tokensFile, Arrays.asList("(a|b)+;WORD"));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile.toString(), new HashSet<>(Arrays.asList('a', 'b')));
+
+        int max = PushTokenizer.MAX_UNKNOWN_RUN;
+        char[] chars = ("?".repeat(2 * max + 10) + "ab").toCharArray();
+        List<Token> tokens = new ArrayList<>();
+        PushTokenizer push = new PushTokenizer(def, tokens::add);
+        push.setCoalesceUnknown(true);
+        for (int off = 0; off < chars.length; off += 7) push.feed(chars, off, Math.min(7, chars.length - off));
+        push.finish();
+
+        assertEquals(4, tokens.size());
+        assertEquals(new Token("UNKNOWN", "?".repeat(max), 0, max), tokens.get(0));
+        assertEquals(max, tokens.get(1).start);
+        assertEquals(2 * max, tokens.get(1).end);
+        assertEquals(new Token("UNKNOWN", "?".repeat(10)), tokens.get(2));
+        assertEquals(new Token("WORD", "ab"), tokens.get(3));
+    }
+}
@@ -0,0 +1,69 @@
+package com.compiler.lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.regex.RegexNode;
+import com.compiler.lexer.regex.RegexNodeFactory;
+import com.compiler.lexer.regex.RegexParser;
+
+public class RegexAstTest {
+    @Test
+    public void testSimplification() {
+        RegexNodeFactory factory = new RegexNodeFactory();
+        RegexParser parser = new RegexParser(factory);
+
+        // Single-character unions become one class, nested unions are flattened
+        RegexNode digits = parser.parseToAst("(0|1)|(2|(3|1))");
+        assertEquals(RegexNode.Kind.CHARS, digits.kind);
+        assertEquals("0123", new String(digits.getChars()));
+
+        // Redundant closures
+        assertSame(parser.parseToAst("a*"), parser.parseToAst("(a*)*"));
+        assertSame(parser.parseToAst("a*"), parser.parseToAst("(a?)*"));
+        assertSame(parser.parseToAst("a*"), parser.parseToAst("(a+)?"));
+        assertSame(parser.parseToAst("a+"), parser.parseToAst("(a+)+"));
+
+        // Common prefixes are factored: if|in|int becomes i(f|n(t)?)
+        RegexNode keywords = parser.parseToAst("if|in|int");
+        assertEquals(RegexNode.Kind.CONCAT, keywords.kind);
+        assertEquals("i", keywords.getChildren().get(0).toString());
+
+        // Hash-consing shares equal subexpressions
+        assertSame(parser.parseToAst("(a|b)c"), parser.parseToAst("(b|a)c"));
+    }
+
+    @Test
+    public void testFactoredNfaKeepsLanguage() {
+        RegexParser parser = new RegexParser();
+        NFA nfa = parser.parse("if|in|int|else|i");
+        NfaSimulator sim = new NfaSimulator();
+        for (String accepted : new String[] { "if", "in", "int", "else", "i" }) {
+            assertTrue(sim.simulate(nfa, accepted), accepted);
+        }
+        for (String rejected : new String[] { "", "intt", "el", "f", "inf" }) {
+            assertFalse(sim.simulate(nfa, rejected), rejected);
+        }
+    }
+
+    @Test
+    public void testIgnoreCaseFoldsClasses() {
+        RegexNodeFactory factory = new RegexNodeFactory();
+        RegexParser parser = new RegexParser(factory);
+        RegexNode lower = parser.parseToAst("select|set");
+        RegexNode folded = parser.parseToAst("select|set", true);
+        assertEquals(lower.size(), folded.size());
+        assertSame(folded, parser.parseToAst("SeLeCt|SET", true));
+
+        NFA nfa = parser.buildNfa(folded);
+        NfaSimulator sim = new NfaSimulator();
+        for (String accepted : new String[] { "select", "SELECT", "SeLeCt", "set", "sET" }) {
+            assertTrue(sim.simulate(nfa, accepted), accepted);
+        }
+        assertFalse(sim.simulate(nfa, "sel"));
+    }
+}
@@ -318,4 +318,33 @@ public class RegexTest {
         assertEquals(expected, actualNfa, "NFA fallo para la cadena: '" + input + "'");
         assertEquals(expected, actualDfa, "DFA fallo para la cadena: '" + input + "'");
     }
+
+    @ParameterizedTest
+    @CsvSource({
+        // a(b|c){2,3}d, then a*{2}x{1,} and the literal brace in {b
+        "'a(b|c){2,3}d',  abcd,     true",
+        "'a(b|c){2,3}d',  accbd,    true",
+        "'a(b|c){2,3}d',  abd,      false",
+        "'a(b|c){2,3}d',  abbbbd,   false",
+        "'a*{2}x{1,}',    x,        true",
+        "'a*{2}x{1,}',    aaaxxx,   true",
+        "'a*{2}x{1,}',    aa,       false",
+        "'(ab){3}',       ababab,   true",
+        "'(ab){3}',       abab,     false",
+        "'{b',            {b,       true",
+        "'{b',            b,        false"
+    })
+    void testCountedRepetition(String regex, String input, boolean expected) {
+        RegexParser parser = new RegexParser();
+        NFA nfa = parser.parse(regex);
+        NfaSimulator nfaSimulator = new NfaSimulator();
+        boolean actualNfa = nfaSimulator.simulate(nfa, input);
+        Set<Character> alphabet = new HashSet<>();
+        for (char c : "abcdx{".toCharArray()) alphabet.add(c);
+        DFA dfa = com.compiler.lexer.NfaToDfaConverter.convertNfaToDfa(nfa, alphabet);
+        com.compiler.lexer.DfaSimulator dfaSimulator = new com.compiler.lexer.DfaSimulator();
+        boolean actualDfa = dfaSimulator.simulate(dfa, input);
+        assertEquals(expected, actualNfa, "NFA fallo para la cadena: '" + input + "'");
+        assertEquals(expected, actualDfa, "DFA fallo para la cadena: '" + input + "'");
+    }
 }
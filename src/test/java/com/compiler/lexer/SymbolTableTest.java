@@ -0,0 +1,65 @@
+package com.compiler.lexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SymbolTableTest {
+    @Test
+    public void testIdsAreDenseAndStableAcrossGrowth() {
+        SymbolTable table = new SymbolTable(4);
+        for (int i = 0; i < 1000; i++) {
+            String text = "<" + "sym" + i + ">";
+            assertEquals(i, table.intern(text, 1, text.length() - 1));
+        }
+        assertEquals(1000, table.size());
+        for (int i = 0; i < 1000; i++) {
+            char[] chars = ("sym" + i).toCharArray();
+            assertEquals(i, table.intern(chars, 0, chars.length));
+            assertEquals("sym" + i, table.name(i));
+        }
+        assertEquals(1000, table.size());
+        assertEquals(-1, table.find("sym1000", 0, 7));
+        assertEquals(-1, table.find("", 0, 0));
+    }
+
+    @Test
+    public void testTokenizerInternsIdentifiers(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b)+;IDENT;keywords=KEYWORD:ab",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, new HashSet<>(Arrays.asList('a', 'b', ' ')));
+        SymbolTable symbols = new SymbolTable();
+        Tokenizer tokenizer = new Tokenizer(def);
+        tokenizer.setSymbolTable(symbols, Set.of("IDENT"));
+
+        List<Token> tokens = tokenizer.tokenize("ba aab ab ba aab");
+        assertEquals(new Tokenizer(def).tokenize("ba aab ab ba aab"), tokens);
+        assertEquals(0, tokens.get(0).symbol);
+        assertEquals(1, tokens.get(1).symbol);
+        assertEquals(-1, tokens.get(2).symbol); // keyword
+        assertEquals(0, tokens.get(3).symbol);
+        assertSame(tokens.get(0).lexeme, tokens.get(3).lexeme);
+        assertEquals(2, symbols.size());
+
+        // Ids are shared by later inputs and by the char[] path
+        char[] chars = "bb ba".toCharArray();
+        List<Token> more = tokenizer.tokenize(chars, 0, chars.length);
+        assertEquals(2, more.get(0).symbol);
+        assertSame(tokens.get(0).lexeme, more.get(1).lexeme);
+
+        tokenizer.setSymbolTable(null, Set.of());
+        assertEquals(-1, tokenizer.tokenize("ba").get(0).symbol);
+    }
+}
@@ -0,0 +1,99 @@
+package com.compiler.lexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class TaggedDfaTest {
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+        "0x((0|1|a|f)+);0x1f",
+        "((0|1)+).((0|1)*)(e(-?)((0|1)+))?;10.01e-11",
+        "((0|1)+).((0|1)*)(e(-?)((0|1)+))?;1.",
+        "(a*)(a*);aaa",
+        "(a|ab)(c|bcd)(d*);abcd",
+        "((a|b)*)b;abab",
+        "(ab|a)(b*);abb",
+        "((a){2,3})(a*);aaaaa",
+        "(k+)=(v*);kk=vvv",
+        "(k+)=(v*);kk=",
+    })
+    public void testGroupsMatchJavaRegex(String regex, String input) {
+        Pattern pattern = Pattern.compile(regex.replace(".", "\\."));
+        Matcher m = pattern.matcher(input);
+        assertEquals(true, m.matches());
+        List<String> names = Arrays.asList(new String[m.groupCount()]);
+        for (int g = 0; g < names.size(); g++) names.set(g, "g" + g);
+        TaggedDfa dfa = new TaggedDfa(regex, false, names);
+        int[] expected = new int[2 * m.groupCount()];
+        for (int g = 0; g < m.groupCount(); g++) {
+            expected[2 * g] = m.start(g + 1);
+            expected[2 * g + 1] = m.end(g + 1);
+        }
+        assertArrayEquals(expected, dfa.match(input, 0, input.length()), regex + " on " + input);
+    }
+
+    @Test
+    public void testTokenizerRecordsGroups(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "0x((0|1|a|f)+);HEX;groups=digits",
+            "((k|v)+)=((k|v)*);PAIR;ignorecase;groups=key,last,value",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile,
+            new HashSet<>(Arrays.asList('0', '1', 'a', 'f', 'x', 'k', 'v', 'K', 'V', '=', ' ')));
+        String jsonFile = temp.resolve("lexer.json").toString();
+        def.saveToFile(jsonFile);
+        assertEquals(def, LexerDefinition.loadFromFile(jsonFile));
+
+        List<Token> tokens = new Tokenizer(def).tokenize("0x1f Kv=VK ? kk=");
+        assertEquals("1f", tokens.get(0).group(0));
+        assertEquals(2, tokens.get(0).groupStart(0));
+        assertEquals(4, tokens.get(0).groupEnd(0));
+        assertEquals("Kv", tokens.get(1).group(0));
+        assertEquals("v", tokens.get(1).group(1)); // a group in a loop reports its last iteration
+        assertEquals("VK", tokens.get(1).group(2));
+        assertEquals(8, tokens.get(1).groupStart(2));
+        assertEquals(0, tokens.get(2).groupCount()); // UNKNOWN
+        assertEquals(-1, tokens.get(2).groupStart(0));
+        assertEquals("", tokens.get(3).group(2));
+        assertNull(tokens.get(3).group(3));
+
+        // Groups are recorded during the table's pass: each char of a long grouped token is read once
+        int[] reads = new int[1];
+        CharSequence counting = new CharSequence() {
+            public int length() { return 1002; }
+            public char charAt(int i) { reads[0]++; return i == 0 ? '0' : i == 1 ? 'x' : 'f'; }
+            public CharSequence subSequence(int s, int e) { return ("0x" + "f".repeat(1000)).substring(s, e); }
+        };
+        List<Token> hex = new Tokenizer(def).tokenize(counting);
+        assertEquals(1, hex.size());
+        assertEquals("f".repeat(1000), hex.get(0).group(0));
+        assertTrue(reads[0] < 1100, "read " + reads[0] + " chars");
+    }
+
+    @Test
+    public void testGroupedTypeDeclaredTwiceIsRejected(@TempDir Path temp) throws Exception {
+        Path tokensFile = temp.resolve("tokens.txt");
+        Files.write(tokensFile, Arrays.asList("0x((0|1)+);NUM;groups=digits", "(0|1)+;NUM"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> LexerBuilder.buildLexerDefinitionFromFile(tokensFile.toString(), new HashSet<>(Arrays.asList('0', '1', 'x'))));
+        assertTrue(e.getMessage().contains("NUM"), e.getMessage());
+    }
+}
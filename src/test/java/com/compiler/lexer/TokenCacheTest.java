@@ -0,0 +1,113 @@
+package com.compiler.lexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TokenCacheTest {
+    @TempDir
+    Path temp;
+
+    @Test
+    public void testWarmLookupsSkipLexing() throws Exception {
+        Path tokensFile = temp.resolve("tokens.txt");
+        Files.write(tokensFile, Arrays.asList("(a|b)+;WORD", "(0|1)+;INT;value=int", "( )+;WS;skip"));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile.toString(), new HashSet<>(Arrays.asList('a', 'b', '0', '1', ' ')));
+        Tokenizer tokenizer = new Tokenizer(def);
+        Path source = temp.resolve("source.txt");
+        Files.writeString(source, "ab 101 ? ba 11");
+
+        TokenCache cache = new TokenCache(temp.resolve("cache"), 1 << 20);
+        TokenStore cold = cache.tokenize(tokenizer, source);
+        TokenStore warm = cache.tokenize(tokenizer, source);
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(cold.size(), warm.size());
+        for (int i = 0; i < cold.size(); i++) {
+            assertEquals(cold.token(i), warm.token(i));
+            assertEquals(cold.start(i), warm.start(i));
+            assertEquals(cold.longValue(i), warm.longValue(i));
+        }
+        assertEquals(101, warm.longValue(1));
+
+        // Records are decoded from the mapped entry in any order, across the indexed records
+        String many = "ab 1 ".repeat(150) + "1".repeat(70);
+        TokenBuffer lexed = tokenizer.tokenizeToBuffer(many);
+        cache.tokenize(tokenizer, many);
+        TokenStore mapped = cache.tokenize(tokenizer, many);
+        assertEquals(lexed.size(), mapped.size());
+        for (int i = lexed.size() - 1; i >= 0; i -= 7) {
+            assertEquals(lexed.token(i), mapped.token(i));
+            assertEquals(lexed.end(i), mapped.end(i));
+            assertEquals(lexed.longValue(i), mapped.longValue(i));
+        }
+        assertTrue(mapped.outOfRange(mapped.size() - 1));
+        assertEquals(lexed.start(299), mapped.start(299));
+
+        // A new cache over the same directory (next build) hits; other options or input miss
+        TokenCache next = new TokenCache(temp.resolve("cache"), 1 << 20);
+        next.tokenize(tokenizer, source);
+        assertEquals(1, next.hits());
+        tokenizer.setCoalesceUnknown(true);
+        next.tokenize(tokenizer, source);
+        next.tokenize(tokenizer, "ab ab");
+        assertEquals(2, next.misses());
+
+        // Corrupt entries are lexed again
+        try (Stream<Path> entries = Files.list(temp.resolve("cache"))) {
+            for (Path entry : entries.toList()) Files.write(entry, new byte[] { 1, 2, 3 });
+        }
+        assertEquals(2, next.tokenize(tokenizer, "ab ab").size());
+        assertEquals(3, next.misses());
+
+        // So are entries whose type count or name length is negative or larger than the file
+        byte[] header = { 0x54, 0x4F, 0x4B, 0x43, 0, 0, 0, 2 };
+        byte[][] bodies = {
+            { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F }, // type count -1 as an int
+            { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01 }, // -1 as a long
+            { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 }, // type count 2^31 - 1
+            { 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F }, // name length -1 as an int
+        };
+        for (byte[] body : bodies) {
+            try (Stream<Path> entries = Files.list(temp.resolve("cache"))) {
+                for (Path entry : entries.toList()) {
+                    byte[] bytes = Arrays.copyOf(header, header.length + body.length);
+                    System.arraycopy(body, 0, bytes, header.length, body.length);
+                    Files.write(entry, bytes);
+                }
+            }
+            int misses = next.misses();
+            assertEquals(2, next.tokenize(tokenizer, "ab ab").size());
+            assertEquals(misses + 1, next.misses());
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        Path tokensFile = temp.resolve("tokens.txt");
+        Files.write(tokensFile, Arrays.asList("(a|b)+;WORD", "( )+;WS;skip"));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile.toString(), new HashSet<>(Arrays.asList('a', 'b', ' ')));
+        Tokenizer tokenizer = new Tokenizer(def);
+        Path directory = temp.resolve("cache");
+        TokenCache cache = new TokenCache(directory, 200);
+        for (int i = 0; i < 20; i++) cache.tokenize(tokenizer, "ab ".repeat(i + 1));
+        long total = 0;
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(directory)) {
+            entries = files.toList();
+        }
+        for (Path entry : entries) total += Files.size(entry);
+        assertTrue(total <= 200);
+        assertTrue(entries.size() < 20);
+        cache.tokenize(tokenizer, "ab ".repeat(20)); // the most recent entry survived
+        assertEquals(1, cache.hits());
+    }
+}
@@ -0,0 +1,97 @@
+package com.compiler.lexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TokenPublisherTest {
+    /**
+     * Records the signals it receives and requests tokens only when told to.
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<Token> {
+        final List<Token> tokens = new ArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        Flow.Subscription subscription;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Token item) {
+            tokens.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    @Test
+    public void testPublishesOnlyRequestedTokens(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        Files.write(Path.of(tokensFile), Arrays.asList("(a|b)+;WORD", "( )+;WS;skip"));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, new HashSet<>(Arrays.asList('a', 'b', ' ')));
+        Tokenizer tokenizer = new Tokenizer(def);
+        String text = "ab ba aab bba b";
+
+        // Same-thread executor: each request runs to completion before returning
+        RecordingSubscriber direct = new RecordingSubscriber();
+        new TokenPublisher(tokenizer, text, Runnable::run).subscribe(direct);
+        assertTrue(direct.tokens.isEmpty());
+        direct.subscription.request(2);
+        assertEquals(Arrays.asList(new Token("WORD", "ab"), new Token("WORD", "ba")), direct.tokens);
+        direct.subscription.request(10);
+        assertEquals(tokenizer.tokenize(text), direct.tokens);
+        assertEquals(0, direct.completed.getCount());
+        direct.subscription.request(0); // ignored after completion
+        assertNull(direct.error);
+
+        // Invalid requests are reported through onError
+        RecordingSubscriber invalid = new RecordingSubscriber();
+        new TokenPublisher(tokenizer, text, Runnable::run).subscribe(invalid);
+        invalid.subscription.request(-1);
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+
+        // Requests made from onNext on a real executor: one token at a time
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RecordingSubscriber oneByOne = new RecordingSubscriber() {
+                @Override
+                public void onNext(Token item) {
+                    super.onNext(item);
+                    subscription.request(1);
+                }
+            };
+            new TokenPublisher(tokenizer, text, executor).subscribe(oneByOne);
+            oneByOne.subscription.request(1);
+            assertTrue(oneByOne.completed.await(5, TimeUnit.SECONDS));
+            assertEquals(tokenizer.tokenize(text), oneByOne.tokens);
+            assertNull(oneByOne.error);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.compiler.lexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TokenSearcherTest {
+    @Test
+    public void testFindAllInArbitraryText(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(0|1|2|3|4|5|6|7|8|9)+;NUMBER",
+            "if|else;KEYWORD"
+        );
+        Files.write(Path.of(tokensFile), lines);
+
+        Set<Character> alphabet = new HashSet<>();
+        for (char c = '0'; c <= '9'; c++) alphabet.add(c);
+        for (char c = 'a'; c <= 'z'; c++) alphabet.add(c);
+
+        TokenSearcher searcher = LexerBuilder.buildSearcherFromFile(tokensFile, alphabet);
+        List<TokenSearcher.Match> matches = searcher.findAll("x=12; nif (y) {42} elsewhere!");
+        assertEquals(Arrays.asList(
+            new TokenSearcher.Match("NUMBER", 2, 4),
+            new TokenSearcher.Match("KEYWORD", 7, 9),
+            new TokenSearcher.Match("NUMBER", 15, 17),
+            new TokenSearcher.Match("KEYWORD", 19, 23)
+        ), matches);
+        assertEquals(0, searcher.findAll("no matches here").size());
+    }
+
+    @Test
+    public void testLiteralPrefixSkip(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "<(a|b)+>;TAG",
+            "<!;BANG"
+        );
+        Files.write(Path.of(tokensFile), lines);
+
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('<', '>', '!', 'a', 'b'));
+        TokenSearcher searcher = LexerBuilder.buildSearcherFromFile(tokensFile, alphabet);
+        assertEquals("<", searcher.getLiteralPrefix());
+        assertEquals(Arrays.asList(
+            new TokenSearcher.Match("TAG", 3, 7),
+            new TokenSearcher.Match("BANG", 10, 12)
+        ), searcher.findAll("xx <ab> < <!a>"));
+        assertEquals(Arrays.asList(new TokenSearcher.Match("TAG", 1, 4)), searcher.findAll(new StringBuilder("a<b><")));
+    }
+
+    @Test
+    public void testLeftmostStartIsFoundWithoutRescanningEachStart(@TempDir Path temp) throws Exception {
+        Path tokensFile = temp.resolve("tokens.txt");
+        Files.write(tokensFile, Arrays.asList("a+b;AB", "c;C", "abcd;ABCD", "bc;BC"));
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', 'c', 'd'));
+        TokenSearcher searcher = LexerBuilder.buildSearcherFromFile(tokensFile.toString(), alphabet);
+
+        // The leftmost match wins even though another one ends first
+        assertEquals(Arrays.asList(new TokenSearcher.Match("ABCD", 0, 4), new TokenSearcher.Match("AB", 4, 6),
+            new TokenSearcher.Match("C", 6, 7)), searcher.findAll("abcdabc"));
+        assertEquals(Arrays.asList(new TokenSearcher.Match("BC", 1, 3)), searcher.findAll("dbcd"));
+
+        // Every a starts an a+b that fails at the c; one pass finds the c instead of one pass per a
+        int n = 200_000;
+        StringBuilder text = new StringBuilder("a".repeat(n)).append('c');
+        assertEquals(Arrays.asList(new TokenSearcher.Match("C", n, n + 1)), searcher.findAll(text));
+    }
+}
@@ -1,14 +1,21 @@
 package com.compiler.lexer;
 
+import java.nio.CharBuffer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class TokenizerTest {
     @Test
@@ -43,4 +50,273 @@ public class TokenizerTest {
 
         Files.deleteIfExists(Paths.get(tokensFile));
     }
+
+    @Test
+    public void testLoopSkippingMatchesTableWalk(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b|c|x|y|z)(a|b|c|x|y|z|0|1|2)*;IDENTIFIER",
+            "(0|1|2)+;NUMBER",
+            "abc;KEYWORD"
+        );
+        Files.write(Path.of(tokensFile), lines);
+
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', 'c', 'x', 'y', 'z', '0', '1', '2'));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        String input = "abc abcx " + "xyz012".repeat(50) + " 0120120121 ab\u00e9c";
+
+        Tokenizer fast = new Tokenizer(def);
+        Tokenizer slow = new Tokenizer(def);
+        slow.setLoopSkipping(false);
+        List<Token> expected = slow.tokenize(input);
+        List<Token> actual = fast.tokenize(input);
+        assertEquals(expected, actual);
+        assertEquals("KEYWORD", actual.get(0).type);
+        assertEquals("IDENTIFIER", actual.get(2).type);
+        assertEquals(300, actual.get(4).lexeme.length());
+    }
+
+    @Test
+    public void testSkipRulesProduceNoTokens(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        String jsonFile = temp.resolve("lexer.json").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b|c)+;IDENTIFIER",
+            "( |\\t|\\n)+;WS;skip",
+            "/(a|b|c| )*/;COMMENT;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', 'c', ' ', '\t', '\n', '/'));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        assertEquals(new HashSet<>(Arrays.asList("WS", "COMMENT")), def.skipTypes);
+
+        Tokenizer tokenizer = new Tokenizer(def);
+        List<Token> tokens = tokenizer.tokenize("abc  \t/a b/\n ba ?");
+        assertEquals(Arrays.asList(
+            new Token("IDENTIFIER", "abc"),
+            new Token("IDENTIFIER", "ba"),
+            new Token("UNKNOWN", "?")
+        ), tokens);
+        assertEquals(13, tokens.get(1).start);
+
+        // Skip types and whitespace in the alphabet survive a JSON round trip
+        def.saveToFile(jsonFile);
+        assertEquals(def, LexerDefinition.loadFromFile(jsonFile));
+    }
+
+    @Test
+    public void testDeadAndTerminalStates() {
+        // 0 --a--> 1 (final, no way out); 0 --b--> 2 --b--> 2 (dead loop); 0 --c--> 3 --c--> 4 (final)
+        int[][] transitions = {
+            { 1, 2, 3 },
+            { -1, -1, -1 },
+            { -1, 2, -1 },
+            { -1, -1, 4 },
+            { -1, -1, -1 }
+        };
+        boolean[] isFinal = { false, true, false, false, true };
+        String[] names = { null, "A", null, null, "CC" };
+        LexerDefinition def = new LexerDefinition(Arrays.asList('a', 'b', 'c'), 0, transitions, isFinal, names);
+        assertEquals(Arrays.asList(true, true, false, true, true), asList(def.canReachAccept));
+        assertEquals(Arrays.asList(false, true, false, false, true), asList(def.isTerminal));
+
+        List<Token> tokens = new Tokenizer(def).tokenize("aabbbcc");
+        assertEquals(Arrays.asList(
+            new Token("A", "a"), new Token("A", "a"),
+            new Token("UNKNOWN", "b"), new Token("UNKNOWN", "b"), new Token("UNKNOWN", "b"),
+            new Token("CC", "cc")
+        ), tokens);
+    }
+
+    @Test
+    public void testCoalescedUnknownSpans(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b)+;WORD",
+            "ab!;BANG",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', '!', ' '));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        Tokenizer tokenizer = new Tokenizer(def);
+        tokenizer.setCoalesceUnknown(true);
+
+        List<Token> tokens = tokenizer.tokenize("\u00e9\u00e9!?ab ##!ab!x");
+        assertEquals(Arrays.asList(
+            new Token("UNKNOWN", "\u00e9\u00e9!?"),
+            new Token("WORD", "ab"),
+            new Token("UNKNOWN", "##!"),
+            new Token("BANG", "ab!"),
+            new Token("UNKNOWN", "x")
+        ), tokens);
+        assertEquals(7, tokens.get(2).start);
+        assertEquals(10, tokens.get(2).end);
+
+        // The match that ends an UNKNOWN span is scanned once, not again after the span is returned
+        int[] reads = new int[1];
+        CharSequence counting = new CharSequence() {
+            public int length() { return 1002; }
+            public char charAt(int i) { reads[0]++; return i < 2 ? '?' : 'a'; }
+            public CharSequence subSequence(int s, int e) { return "??".substring(Math.min(s, 2), Math.min(e, 2)) + "a".repeat(Math.max(0, e - Math.max(s, 2))); }
+        };
+        assertEquals(Arrays.asList(new Token("UNKNOWN", "??"), new Token("WORD", "a".repeat(1000))), tokenizer.tokenize(counting));
+        assertTrue(reads[0] < 1500, "read " + reads[0] + " chars");
+    }
+
+    @Test
+    public void testKeywordsReclassifyIdentifiers(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        String jsonFile = temp.resolve("lexer.json").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b|c|e|f|i|l|s)+;IDENTIFIER;keywords=KEYWORD:if,else,case;keywords=LITERAL:false",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', 'c', 'e', 'f', 'i', 'l', 's', ' '));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        List<Token> tokens = new Tokenizer(def).tokenize("if iff else false cases");
+        assertEquals(Arrays.asList(
+            new Token("KEYWORD", "if"),
+            new Token("IDENTIFIER", "iff"),
+            new Token("KEYWORD", "else"),
+            new Token("LITERAL", "false"),
+            new Token("IDENTIFIER", "cases")
+        ), tokens);
+        assertEquals(7, tokens.get(2).start);
+        assertEquals(11, tokens.get(2).end);
+
+        // Keyword tables survive a JSON round trip and so does the definition built with derivatives
+        def.saveToFile(jsonFile);
+        assertEquals(def, LexerDefinition.loadFromFile(jsonFile));
+        LexerDefinition derived = LexerBuilder.buildLexerDefinitionWithDerivatives(tokensFile, alphabet);
+        assertEquals(tokens, new Tokenizer(derived).tokenize("if iff else false cases"));
+    }
+
+    @Test
+    public void testIgnoreCaseRules(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b|c|e|l|s|t)+;IDENTIFIER",
+            "select;SELECT;ignorecase",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', 'c', 'e', 'l', 's', 't', 'C', 'E', 'L', 'S', 'T', ' '));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        String input = "SELECT select SeLeCt selects Sel";
+        List<Token> tokens = new Tokenizer(def).tokenize(input);
+        assertEquals(Arrays.asList(
+            new Token("SELECT", "SELECT"),
+            new Token("SELECT", "select"),
+            new Token("SELECT", "SeLeCt"),
+            new Token("IDENTIFIER", "selects"),
+            new Token("UNKNOWN", "S"),
+            new Token("IDENTIFIER", "el")
+        ), tokens);
+        LexerDefinition derived = LexerBuilder.buildLexerDefinitionWithDerivatives(tokensFile, alphabet);
+        assertEquals(tokens, new Tokenizer(derived).tokenize(input));
+    }
+
+    @Test
+    public void testHybridLexerRoutesExplodingRules(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b)+;WORD",
+            "c(a|b)*a(a|b){15}c;TAIL",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b', 'c', ' '));
+        HybridLexer lexer = LexerBuilder.buildHybridLexerFromFile(tokensFile, alphabet);
+        assertEquals(1, lexer.getFallbackRules().size());
+        assertEquals("TAIL", lexer.getFallbackRules().get(0).tokenTypeName);
+        assertEquals(1, lexer.getWarnings().size());
+        assertTrue(lexer.definition.transitions.length < 10);
+
+        String tail = "cbbab" + "a" + "abababababababa" + "c";
+        List<Token> tokens = new Tokenizer(lexer).tokenize("ab " + tail + " cbab" + " b");
+        assertEquals(Arrays.asList(
+            new Token("WORD", "ab"),
+            new Token("TAIL", tail),
+            new Token("UNKNOWN", "c"),
+            new Token("WORD", "bab"),
+            new Token("WORD", "b")
+        ), tokens);
+    }
+
+    @Test
+    public void testCharSequenceAndArrayRegions(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b)+;WORD;keywords=KEYWORD:ab",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, new HashSet<>(Arrays.asList('a', 'b', ' ')));
+        Tokenizer tokenizer = new Tokenizer(def);
+
+        String text = "ab  baab x";
+        List<Token> expected = tokenizer.tokenize(text);
+        assertEquals(Arrays.asList(new Token("KEYWORD", "ab"), new Token("WORD", "baab"), new Token("UNKNOWN", "x")), expected);
+        assertEquals(expected, tokenizer.tokenize(new StringBuilder(text)));
+
+        // Offsets are relative to the region, not to the array or buffer
+        char[] padded = ("xx" + text + "yy").toCharArray();
+        List<Token> fromArray = tokenizer.tokenize(padded, 2, text.length());
+        assertEquals(expected, fromArray);
+        assertEquals(4, fromArray.get(1).start);
+        assertEquals(8, fromArray.get(1).end);
+        CharBuffer buffer = CharBuffer.wrap(padded);
+        buffer.position(2).limit(2 + text.length());
+        List<Token> fromBuffer = tokenizer.tokenize(buffer);
+        assertEquals(expected, fromBuffer);
+        assertEquals(4, fromBuffer.get(1).start);
+    }
+
+    @Test
+    public void testIteratorAndStreamAreLazy(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "(a|b)+;WORD;keywords=KEYWORD:ab",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, new HashSet<>(Arrays.asList('a', 'b', ' ')));
+        Tokenizer tokenizer = new Tokenizer(def);
+        tokenizer.setCoalesceUnknown(true);
+
+        String text = "ab xx baab ?? a";
+        List<Token> expected = tokenizer.tokenize(text);
+        List<Token> iterated = new ArrayList<>();
+        tokenizer.iterator(text).forEachRemaining(iterated::add);
+        assertEquals(expected, iterated);
+        assertEquals(expected, tokenizer.stream(text).toList());
+        char[] chars = text.toCharArray();
+        Iterator<Token> fromArray = tokenizer.iterator(chars, 0, chars.length);
+        for (Token t : expected) assertEquals(t, fromArray.next());
+        assertFalse(fromArray.hasNext());
+
+        // Short-circuiting consumers only scan the input they need
+        int[] reads = new int[1];
+        CharSequence counting = new CharSequence() {
+            public int length() { return 1_000_000; }
+            public char charAt(int i) { reads[0]++; return i % 3 == 2 ? ' ' : 'a'; }
+            public CharSequence subSequence(int s, int e) { return "a".repeat(e - s); }
+        };
+        assertEquals(Arrays.asList(new Token("WORD", "aa"), new Token("WORD", "aa")),
+            tokenizer.stream(counting).limit(2).toList());
+        assertTrue(reads[0] < 100);
+    }
+
+    private List<Boolean> asList(boolean[] values) {
+        Boolean[] boxed = new Boolean[values.length];
+        for (int i = 0; i < values.length; i++) boxed[i] = values[i];
+        return Arrays.asList(boxed);
+    }
 }
@@ -0,0 +1,122 @@
+package com.compiler.lexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.compiler.lexer.regex.RegexNodeFactory;
+import com.compiler.lexer.regex.RegexParser;
+
+public class ValueDecoderTest {
+    @Test
+    public void testIntegers() {
+        assertEquals(42, ValueDecoder.INT.decode("x42x", 1, 3));
+        assertEquals(-1_000_000, ValueDecoder.INT.decode("-1_000_000", 0, 10));
+        assertEquals(Long.MAX_VALUE, ValueDecoder.INT.decode("9223372036854775807", 0, 19));
+        assertEquals(Long.MIN_VALUE, ValueDecoder.INT.decode("-9223372036854775808", 0, 20));
+        assertThrows(ArithmeticException.class, () -> ValueDecoder.INT.decode("9223372036854775808", 0, 19));
+        assertThrows(NumberFormatException.class, () -> ValueDecoder.INT.decode("12a", 0, 3));
+        assertEquals(0xFF, ValueDecoder.HEX.decode("0xff", 0, 4));
+        assertEquals(0xCAFE_BABEL, ValueDecoder.HEX.decode("CAFE_BABE", 0, 9));
+        assertEquals(-1L, ValueDecoder.HEX.decode("0XFFFFFFFFFFFFFFFF", 0, 18));
+        assertThrows(ArithmeticException.class, () -> ValueDecoder.HEX.decode("0x10000000000000000", 0, 19));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "0", "1.5", "-2e-3", ".5", "3.", "3.0f", "1e22", "123456789012345678901234", "0.1", "1.7976931348623157e308",
+        "4.9e-324", "2.2250738585072014E-308", "-0.0", "123.456e-7", "9007199254740993" })
+    public void testFloatsMatchParseDouble(String literal) {
+        double expected = Double.parseDouble(literal);
+        assertEquals(Double.doubleToRawLongBits(expected), ValueDecoder.FLOAT.decode(literal, 0, literal.length()), literal);
+    }
+
+    @Test
+    public void testTokenBufferHoldsDecodedValues(@TempDir Path temp) throws Exception {
+        String tokensFile = temp.resolve("tokens.txt").toString();
+        List<String> lines = Arrays.asList(
+            "0x(0|1|2|a|f)+;HEX;value=hex",
+            "(0|1|2)+;INT;value=int",
+            "(0|1|2)+.(0|1|2)+;FLOAT;value=float",
+            "(a|f)+;WORD",
+            "( )+;WS;skip"
+        );
+        Files.write(Path.of(tokensFile), lines);
+        Set<Character> alphabet = new HashSet<>(Arrays.asList('0', '1', '2', 'a', 'f', 'x', '.', ' '));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile, alphabet);
+        String jsonFile = temp.resolve("tokens.json").toString();
+        def.saveToFile(jsonFile);
+        assertEquals(def, LexerDefinition.loadFromFile(jsonFile));
+
+        String text = "120 0xff 1.2 fa 0x1a ? 21";
+        Tokenizer tokenizer = new Tokenizer(def);
+        TokenBuffer buffer = tokenizer.tokenizeToBuffer(text);
+        List<Token> tokens = tokenizer.tokenize(text);
+        assertEquals(tokens.size(), buffer.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(tokens.get(i), buffer.token(i));
+            assertEquals(tokens.get(i).start, buffer.start(i));
+        }
+        assertEquals(120, buffer.longValue(0));
+        assertEquals(255, buffer.longValue(1));
+        assertEquals(1.2, buffer.doubleValue(2));
+        assertEquals(0, buffer.longValue(3));
+        assertEquals(26, buffer.longValue(4));
+        assertEquals("UNKNOWN", buffer.type(5));
+        assertEquals(21, buffer.longValue(6));
+
+        char[] padded = ("  " + text).toCharArray();
+        TokenBuffer fromArray = tokenizer.tokenizeToBuffer(padded, 2, text.length());
+        assertEquals(255, fromArray.longValue(1));
+        assertEquals("0xff", fromArray.lexeme(1));
+        assertEquals(4, fromArray.start(1));
+    }
+
+    @Test
+    public void testOverflowingLiteralIsFlagged(@TempDir Path temp) throws Exception {
+        Path tokensFile = temp.resolve("tokens.txt");
+        Files.write(tokensFile, Arrays.asList("(0|1)+;INT;value=int", "( )+;WS;skip"));
+        LexerDefinition def = LexerBuilder.buildLexerDefinitionFromFile(tokensFile.toString(), new HashSet<>(Arrays.asList('0', '1', ' ')));
+
+        String huge = "1".repeat(70);
+        TokenBuffer buffer = new Tokenizer(def).tokenizeToBuffer("10 " + huge + " 11");
+        assertEquals(3, buffer.size());
+        assertEquals("INT", buffer.type(1));
+        assertEquals(huge, buffer.lexeme(1));
+        assertTrue(buffer.outOfRange(1));
+        assertEquals(0, buffer.longValue(1));
+        assertFalse(buffer.outOfRange(0));
+        assertEquals(11, buffer.longValue(2));
+        assertFalse(buffer.outOfRange(2));
+    }
+
+    @Test
+    public void testRuleMatchingNonLiteralsIsRejected(@TempDir Path temp) throws Exception {
+        Path tokensFile = temp.resolve("tokens.txt");
+        Files.write(tokensFile, Arrays.asList("(a|1)+;X;value=int"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> LexerBuilder.buildLexerDefinitionFromFile(tokensFile.toString(), new HashSet<>(Arrays.asList('a', '1'))));
+        assertTrue(e.getMessage().contains("\"a\""), e.getMessage());
+    }
+
+    @Test
+    public void testInconclusiveCheckIsRejected() {
+        RegexNodeFactory f = new RegexNodeFactory();
+        assertNull(ValueDecoder.INT.nonLiteral(f, new RegexParser(f).parseToAst("(0|1)+", false), 100));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> ValueDecoder.INT.nonLiteral(f, new RegexParser(f).parseToAst("(0|1)+", false), 1));
+        assertTrue(e.getMessage().contains("within 1 derivative pairs"), e.getMessage());
+    }
+}